@@ -0,0 +1,190 @@
+package org.pdf.downloader.core;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Per-host AIMD concurrency limit. Each host starts at half the configured maximum;
+ * a window of successful transfers with the limit fully used adds one slot, a 429/503
+ * (or timeout) halves it. Decreases are spaced out so one burst of errors from the
+ * same window only counts once. Permits can be awaited blocking or as a future, so
+ * the async engine can share the same limiter.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    public enum Outcome {
+        /** Transfer finished; counts toward growing the limit. */
+        SUCCESS,
+        /** Host pushed back (429/503, timeouts); shrink the limit. */
+        THROTTLED,
+        /** Failure unrelated to load (404, bad PDF...); leaves the limit alone. */
+        IGNORED
+    }
+
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final long DECREASE_COOLDOWN_MS = 2000;
+
+    private final int maxLimit;
+    private final int initialLimit;
+    private final Map<String, HostLimit> hosts = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimiter(int maxLimit) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.initialLimit = Math.max(1, this.maxLimit / 2);
+    }
+
+    /** Completes once a slot for {@code host} is free; the caller must release the permit. */
+    public CompletableFuture<Permit> acquireAsync(String host) {
+        return hosts.computeIfAbsent(host, h -> new HostLimit(h, initialLimit)).acquire();
+    }
+
+    /** A permit for {@code host} if one is free right now (nobody waiting ahead), otherwise null. */
+    public Permit tryAcquire(String host) {
+        return hosts.computeIfAbsent(host, h -> new HostLimit(h, initialLimit)).tryAcquire();
+    }
+
+    /** What a failed transfer says about host load: 429/503 and timeouts are push-back, the rest isn't. */
+    public static Outcome classify(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof HttpStatusException && ((HttpStatusException) t).isThrottling()
+                    || t instanceof HttpTimeoutException
+                    || t instanceof SocketTimeoutException) {
+                return Outcome.THROTTLED;
+            }
+        }
+        return Outcome.IGNORED;
+    }
+
+    public Permit acquire(String host) throws InterruptedException {
+        CompletableFuture<Permit> future = acquireAsync(host);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // Hand back a permit that may have been granted meanwhile
+            future.cancel(false);
+            if (!future.isCancelled()) {
+                future.join().release(Outcome.IGNORED);
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** Current limit per host, for logging / status endpoints. */
+    public Map<String, Integer> currentLimits() {
+        Map<String, Integer> limits = new TreeMap<>();
+        hosts.forEach((host, limit) -> limits.put(host, limit.currentLimit()));
+        return limits;
+    }
+
+    public class Permit {
+        private final HostLimit owner;
+        private boolean released;
+
+        private Permit(HostLimit owner) {
+            this.owner = owner;
+        }
+
+        public void release(Outcome outcome) {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            owner.release(outcome);
+        }
+    }
+
+    private class HostLimit {
+        private final String host;
+        private final Deque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+        private double limit;
+        private int inFlight;
+        private long lastDecrease;
+
+        HostLimit(String host, int initial) {
+            this.host = host;
+            this.limit = initial;
+        }
+
+        synchronized int currentLimit() {
+            return (int) limit;
+        }
+
+        CompletableFuture<Permit> acquire() {
+            CompletableFuture<Permit> future = new CompletableFuture<>();
+            synchronized (this) {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                } else {
+                    waiters.addLast(future);
+                    return future;
+                }
+            }
+            future.complete(new Permit(this));
+            return future;
+        }
+
+        Permit tryAcquire() {
+            synchronized (this) {
+                if (!waiters.isEmpty() || inFlight >= (int) limit) {
+                    return null;
+                }
+                inFlight++;
+            }
+            return new Permit(this);
+        }
+
+        void release(Outcome outcome) {
+            int before;
+            int after;
+            synchronized (this) {
+                before = (int) limit;
+                boolean saturated = inFlight >= before;
+                inFlight--;
+                long now = System.currentTimeMillis();
+                if (outcome == Outcome.SUCCESS && saturated) {
+                    // +1 slot per window of 'limit' successes
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                } else if (outcome == Outcome.THROTTLED && now - lastDecrease > DECREASE_COOLDOWN_MS) {
+                    limit = Math.max(1, limit * DECREASE_FACTOR);
+                    lastDecrease = now;
+                }
+                after = (int) limit;
+            }
+            if (after != before) {
+                System.out.println("🎚️ Concurrency for " + host + ": " + before + " → " + after);
+            }
+            dispatch();
+        }
+
+        /** Hands free slots to waiters outside the lock so their continuations don't run while holding it. */
+        private void dispatch() {
+            while (true) {
+                CompletableFuture<Permit> next;
+                synchronized (this) {
+                    if (waiters.isEmpty() || inFlight >= (int) limit) {
+                        return;
+                    }
+                    next = waiters.pollFirst();
+                    inFlight++;
+                }
+                if (!next.complete(new Permit(this))) {
+                    // Waiter gave up (cancelled); return the slot
+                    synchronized (this) {
+                        inFlight--;
+                    }
+                }
+            }
+        }
+    }
+}
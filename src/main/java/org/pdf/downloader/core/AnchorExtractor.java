@@ -0,0 +1,464 @@
+package org.pdf.downloader.core;
+
+import org.jsoup.parser.Parser;
+import org.pdf.downloader.model.Anchor;
+import org.pdf.downloader.model.PageLinks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Single-pass HTML tokenizer for discovery: reads a page once and reports each link
+ * as (href, text, nearest heading) together with the title, headings and meta tags the
+ * context resolver uses – without building a DOM. Only the current tag and the text of
+ * the open anchor/heading are buffered, so memory per page doesn't grow with its size.
+ * Script and style bodies are skipped, comments ignored, entities decoded.
+ */
+public class AnchorExtractor {
+
+    /** Receives tokens in document order. */
+    public interface Listener {
+        default void onTitle(String title) {}
+        default void onHeading(int level, String text) {}
+        default void onMeta(String name, String content) {}
+        void onAnchor(Anchor anchor);
+    }
+
+    /** Bumped when extraction changes, so cached link lists are rebuilt from the stored HTML. */
+    public static final int VERSION = 1;
+    private static final String HTML_ACCEPT = "text/html,application/xhtml+xml,*/*;q=0.8";
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(15);
+    private static final int MAX_TEXT = 2048;
+    private static final int MAX_TAG = 16384;
+    /** Cap on h1–h3 / meta texts kept per page for the context resolver. */
+    private static final int MAX_CONTEXT_ITEMS = 256;
+    private static final Set<String> RAW_TEXT_TAGS = Set.of("script", "style", "textarea");
+    /** Tags that separate words in Jsoup's text(); inline tags don't. */
+    private static final Set<String> BREAKING_TAGS = Set.of("br", "p", "div", "li", "td", "th", "tr", "ul", "ol",
+        "table", "section", "article", "header", "footer", "dd", "dt", "dl", "blockquote", "pre", "hr");
+
+    private AnchorExtractor() {
+    }
+
+    /** Fetches an HTML page through the shared transport and extracts it while the body streams in. */
+    public static PageLinks fetch(HttpTransport transport, String url) throws IOException {
+        HttpResponse<InputStream> response = send(transport, request(transport, url).build(), url);
+        try (InputStream body = response.body()) {
+            return extract(response, body, url);
+        }
+    }
+
+    /** GET for a page (HTML Accept header, page timeout); callers may add conditional headers. */
+    public static HttpRequest.Builder request(HttpTransport transport, String url) throws IOException {
+        return transport.newRequest(url)
+            .setHeader("Accept", HTML_ACCEPT)
+            .timeout(FETCH_TIMEOUT)
+            .GET();
+    }
+
+    public static HttpResponse<InputStream> send(HttpTransport transport, HttpRequest request, String url)
+            throws IOException {
+        try {
+            return transport.client().send(request, transport.streamingBody());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Page fetch interrupted: " + url, e);
+        }
+    }
+
+    /**
+     * Checks that {@code response} is a 200 HTML page and extracts it from {@code body}
+     * (the response body, possibly wrapped by the caller to keep a copy).
+     */
+    public static PageLinks extract(HttpResponse<?> response, InputStream body, String url) throws IOException {
+        int status = response.statusCode();
+        if (status != 200) {
+            throw new HttpStatusException("HTTP " + status + " fetching page: " + url, status,
+                HttpResponses.retryAfterMillis(response.headers()));
+        }
+        String contentType = response.headers().firstValue("Content-Type").orElse("text/html");
+        if (!isHtml(contentType)) {
+            throw new IOException("Not an HTML page (" + contentType + "): " + url);
+        }
+        String pageUrl = response.uri().toString();
+        PageLinks page = new PageLinks(pageUrl);
+        parse(new InputStreamReader(body, charsetOf(contentType)), pageUrl, collector(page));
+        return page;
+    }
+
+    /** Listener that fills a {@link PageLinks}. */
+    public static Listener collector(PageLinks page) {
+        return new Listener() {
+            @Override
+            public void onTitle(String title) {
+                page.setTitle(title);
+            }
+
+            @Override
+            public void onHeading(int level, String text) {
+                if (level <= 3 && page.getHeadings().size() < MAX_CONTEXT_ITEMS) {
+                    page.getHeadings().add(text);
+                }
+            }
+
+            @Override
+            public void onMeta(String name, String content) {
+                if (page.getMetaContents().size() < MAX_CONTEXT_ITEMS) {
+                    page.getMetaContents().add(content);
+                }
+            }
+
+            @Override
+            public void onAnchor(Anchor anchor) {
+                page.getAnchors().add(anchor);
+            }
+        };
+    }
+
+    /** Tokenizes {@code reader}; relative hrefs resolve against {@code baseUrl} (or a {@code <base>} tag). */
+    public static void parse(Reader reader, String baseUrl, Listener listener) throws IOException {
+        new Tokenizer(reader, baseUrl, listener).run();
+    }
+
+    private static boolean isHtml(String contentType) {
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.contains("html") || type.contains("xml");
+    }
+
+    static Charset charsetOf(String contentType) {
+        int at = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (at >= 0) {
+            String name = contentType.substring(at + 8).split("[;\\s]")[0].replace("\"", "").trim();
+            try {
+                return Charset.forName(name);
+            } catch (IllegalArgumentException e) {
+                // fall through to UTF-8
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static final class Tokenizer {
+        private final Reader reader;
+        private final Listener listener;
+        private final char[] buf = new char[8192];
+        private int pos;
+        private int limit;
+        private boolean eof;
+
+        private String base;
+        private boolean baseSet;
+        private String anchorHref;
+        private final StringBuilder anchorText = new StringBuilder();
+        private int headingLevel;
+        private final StringBuilder headingText = new StringBuilder();
+        private String lastHeading = "";
+        private final StringBuilder tag = new StringBuilder();
+
+        Tokenizer(Reader reader, String baseUrl, Listener listener) {
+            this.reader = reader;
+            this.base = baseUrl;
+            this.listener = listener;
+        }
+
+        void run() throws IOException {
+            int c;
+            while ((c = read()) != -1) {
+                if (c == '<' && markup()) {
+                    continue;
+                }
+                text((char) c);
+            }
+            if (anchorHref != null) {
+                emitAnchor();
+            }
+        }
+
+        /** Handles markup after '<'; false when the '<' was plain text. */
+        private boolean markup() throws IOException {
+            int c = peek(0);
+            if (c == '!') {
+                if (peek(1) == '-' && peek(2) == '-') {
+                    skip(3);
+                    skipPast("-->");
+                } else {
+                    skipPast(">");
+                }
+                return true;
+            }
+            if (c == '?') {
+                skipPast(">");
+                return true;
+            }
+            if (c == '/' && isLetter(peek(1))) {
+                skip(1);
+                String name = readName();
+                skipPast(">");
+                endTag(name);
+                return true;
+            }
+            if (isLetter(c)) {
+                String name = readName();
+                readTagBody();
+                startTag(name);
+                return true;
+            }
+            return false;
+        }
+
+        private void startTag(String name) throws IOException {
+            if (name.equals("a")) {
+                if (anchorHref != null) {
+                    emitAnchor(); // unclosed <a> ends at the next one
+                }
+                anchorHref = attribute("href");
+                anchorText.setLength(0);
+            } else if (isHeading(name)) {
+                headingLevel = name.charAt(1) - '0';
+                headingText.setLength(0);
+            } else if (name.equals("title")) {
+                listener.onTitle(clean(rawText("title", true)));
+            } else if (RAW_TEXT_TAGS.contains(name)) {
+                rawText(name, false);
+            } else if (name.equals("meta")) {
+                String meta = attribute("name");
+                String content = attribute("content");
+                if (meta != null && content != null
+                        && (meta.equalsIgnoreCase("description") || meta.equalsIgnoreCase("keywords"))) {
+                    listener.onMeta(meta.toLowerCase(Locale.ROOT), content);
+                }
+            } else if (name.equals("base") && !baseSet) {
+                String href = attribute("href");
+                if (href != null) {
+                    String resolved = resolve(href);
+                    base = resolved.isEmpty() ? base : resolved;
+                    baseSet = true;
+                }
+            } else if (BREAKING_TAGS.contains(name)) {
+                text(' ');
+            }
+        }
+
+        private void endTag(String name) {
+            if (name.equals("a")) {
+                if (anchorHref != null) {
+                    emitAnchor();
+                }
+            } else if (isHeading(name) && headingLevel > 0) {
+                String text = clean(headingText.toString());
+                if (!text.isEmpty()) {
+                    lastHeading = text;
+                }
+                listener.onHeading(headingLevel, text);
+                headingLevel = 0;
+            } else if (BREAKING_TAGS.contains(name)) {
+                text(' ');
+            }
+        }
+
+        private void text(char c) {
+            if (anchorHref != null && anchorText.length() < MAX_TEXT) {
+                anchorText.append(c);
+            }
+            if (headingLevel > 0 && headingText.length() < MAX_TEXT) {
+                headingText.append(c);
+            }
+        }
+
+        private void emitAnchor() {
+            String href = anchorHref;
+            anchorHref = null;
+            listener.onAnchor(new Anchor(href, resolve(href.trim()), clean(anchorText.toString()), lastHeading));
+        }
+
+        private String resolve(String href) {
+            try {
+                return new URL(new URL(base), href).toExternalForm();
+            } catch (MalformedURLException e) {
+                return "";
+            }
+        }
+
+        /** Reads the attributes part of a start tag into {@code tag}, up to the closing '>'. */
+        private void readTagBody() throws IOException {
+            tag.setLength(0);
+            char quote = 0;
+            int c;
+            while ((c = read()) != -1) {
+                if (quote != 0) {
+                    if (c == quote) quote = 0;
+                } else if (c == '"' || c == '\'') {
+                    quote = (char) c;
+                } else if (c == '>') {
+                    return;
+                }
+                if (tag.length() < MAX_TAG) {
+                    tag.append((char) c);
+                }
+            }
+        }
+
+        /** Value of {@code name} in the current tag, entity-decoded; null when absent. */
+        private String attribute(String name) {
+            int i = 0;
+            int n = tag.length();
+            while (i < n) {
+                while (i < n && (Character.isWhitespace(tag.charAt(i)) || tag.charAt(i) == '/')) i++;
+                int start = i;
+                while (i < n && !Character.isWhitespace(tag.charAt(i)) && tag.charAt(i) != '=' && tag.charAt(i) != '/') i++;
+                String attr = tag.substring(start, i);
+                while (i < n && Character.isWhitespace(tag.charAt(i))) i++;
+                String value = "";
+                if (i < n && tag.charAt(i) == '=') {
+                    i++;
+                    while (i < n && Character.isWhitespace(tag.charAt(i))) i++;
+                    if (i < n && (tag.charAt(i) == '"' || tag.charAt(i) == '\'')) {
+                        char quote = tag.charAt(i++);
+                        int end = tag.indexOf(String.valueOf(quote), i);
+                        end = end < 0 ? n : end;
+                        value = tag.substring(i, end);
+                        i = Math.min(n, end + 1);
+                    } else {
+                        start = i;
+                        while (i < n && !Character.isWhitespace(tag.charAt(i))) i++;
+                        value = tag.substring(start, i);
+                    }
+                }
+                if (attr.equalsIgnoreCase(name)) {
+                    return Parser.unescapeEntities(value, true);
+                }
+                if (attr.isEmpty()) {
+                    i++;
+                }
+            }
+            return null;
+        }
+
+        /** Content up to {@code </name>}; only kept when {@code keep} (title), script/style are just skipped. */
+        private String rawText(String name, boolean keep) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = read()) != -1) {
+                if (c == '<' && peek(0) == '/' && matchesAt(1, name)) {
+                    skipPast(">");
+                    break;
+                }
+                if (keep && sb.length() < MAX_TEXT) {
+                    sb.append((char) c);
+                }
+            }
+            return sb.toString();
+        }
+
+        private String readName() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = peek(0)) != -1 && (isLetter(c) || Character.isDigit(c) || c == '-' || c == ':')) {
+                sb.append(Character.toLowerCase((char) c));
+                pos++;
+            }
+            return sb.toString();
+        }
+
+        private void skipPast(String marker) throws IOException {
+            int c;
+            while ((c = read()) != -1) {
+                if (c == marker.charAt(0) && matchesAt(0, marker.substring(1))) {
+                    skip(marker.length() - 1);
+                    return;
+                }
+            }
+        }
+
+        private boolean matchesAt(int offset, String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                int c = peek(offset + i);
+                if (c == -1 || Character.toLowerCase((char) c) != s.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int read() throws IOException {
+            if (pos >= limit && !fill(1)) {
+                return -1;
+            }
+            return buf[pos++];
+        }
+
+        private int peek(int ahead) throws IOException {
+            if (pos + ahead >= limit && !fill(ahead + 1)) {
+                return -1;
+            }
+            return buf[pos + ahead];
+        }
+
+        private void skip(int n) throws IOException {
+            for (int i = 0; i < n && read() != -1; i++) {
+                // consumed
+            }
+        }
+
+        /** Makes at least {@code n} chars available from pos; false at end of input. */
+        private boolean fill(int n) throws IOException {
+            if (limit - pos >= n) {
+                return true;
+            }
+            if (eof) {
+                return false;
+            }
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+            while (limit < n) {
+                int read = reader.read(buf, limit, buf.length - limit);
+                if (read == -1) {
+                    eof = true;
+                    return false;
+                }
+                limit += read;
+            }
+            return true;
+        }
+
+        private static boolean isLetter(int c) {
+            return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+        }
+
+        private static boolean isHeading(String name) {
+            return name.length() == 2 && name.charAt(0) == 'h' && name.charAt(1) >= '1' && name.charAt(1) <= '6';
+        }
+
+        /** Entity-decoded text with whitespace collapsed, like Jsoup's text(). */
+        private static String clean(String raw) {
+            String decoded = raw.indexOf('&') >= 0 ? Parser.unescapeEntities(raw, false) : raw;
+            StringBuilder sb = new StringBuilder(decoded.length());
+            boolean space = false;
+            for (int i = 0; i < decoded.length(); i++) {
+                char c = decoded.charAt(i);
+                if (Character.isWhitespace(c) || c == ' ') {
+                    space = sb.length() > 0;
+                } else {
+                    if (space) {
+                        sb.append(' ');
+                        space = false;
+                    }
+                    sb.append(c);
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
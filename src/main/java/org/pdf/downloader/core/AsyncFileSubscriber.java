@@ -0,0 +1,201 @@
+package org.pdf.downloader.core;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Body subscriber that writes each chunk to an {@link AsynchronousFileChannel} and only
+ * requests the next chunk once the previous writes have completed, so a slow disk
+ * backpressures the connection instead of buffering in memory. No thread blocks on
+ * either side. Bandwidth shaping delays that next request instead of sleeping. A chunk
+ * that doesn't arrive within the idle timeout of being requested cancels the body.
+ * Completes with the number of bytes written.
+ */
+public class AsyncFileSubscriber implements HttpResponse.BodySubscriber<Long> {
+
+    private static final byte[] PDF_MAGIC = {'%', 'P', 'D', 'F'};
+
+    private final AsynchronousFileChannel channel;
+    private final long startPosition;
+    private final String pdfSource;
+    private final MessageDigest digest;
+    private final Throttle throttle;
+    private final Duration idleTimeout;
+    private final CompletableFuture<Long> result = new CompletableFuture<>();
+    private final byte[] header = new byte[PDF_MAGIC.length];
+    private int headerLength;
+    private Flow.Subscription subscription;
+    private IdleWatchdog watchdog;
+    private long written;
+    private long throttleDelay;
+    private boolean writing;
+    private boolean upstreamDone;
+
+    /**
+     * @param pdfSource when non-null, the first bytes must be the PDF magic (name used in the error)
+     * @param digest    optional hash fed with every byte written
+     * @param throttle  bandwidth pacing; the next chunk is requested only after its wait
+     * @param idleTimeout longest wait for a requested chunk before the transfer fails
+     */
+    public AsyncFileSubscriber(AsynchronousFileChannel channel, long position, String pdfSource,
+                               MessageDigest digest, Throttle throttle, Duration idleTimeout) {
+        this.channel = channel;
+        this.startPosition = position;
+        this.pdfSource = pdfSource;
+        this.digest = digest;
+        this.throttle = throttle != null ? throttle : Throttle.NONE;
+        this.idleTimeout = idleTimeout;
+    }
+
+    @Override
+    public CompletionStage<Long> getBody() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        this.watchdog = new IdleWatchdog(idleTimeout, () -> {
+            subscription.cancel();
+            fail(watchdog.timeout());
+        });
+        request();
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        watchdog.progressed();
+        if (result.isDone()) {
+            return;
+        }
+        long bytes = 0;
+        try {
+            for (ByteBuffer item : items) {
+                bytes += item.remaining();
+                inspectHeader(item);
+                if (digest != null) {
+                    digest.update(item.duplicate());
+                }
+            }
+        } catch (NotPdfException e) {
+            subscription.cancel();
+            fail(e);
+            return;
+        }
+        synchronized (this) {
+            writing = true;
+            throttleDelay = throttle.reserve(bytes);
+        }
+        writeNext(items.iterator(), null);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        boolean finishNow;
+        synchronized (this) {
+            upstreamDone = true;
+            finishNow = !writing;
+        }
+        if (finishNow) {
+            finish();
+        }
+    }
+
+    private void writeNext(Iterator<ByteBuffer> items, ByteBuffer current) {
+        ByteBuffer buffer = current;
+        while ((buffer == null || !buffer.hasRemaining()) && items.hasNext()) {
+            buffer = items.next();
+        }
+        if (buffer == null || !buffer.hasRemaining()) {
+            boolean finishNow;
+            long delay;
+            synchronized (this) {
+                writing = false;
+                finishNow = upstreamDone;
+                delay = throttleDelay;
+            }
+            if (finishNow) {
+                finish();
+            } else if (delay > 0) {
+                CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(this::request);
+            } else {
+                request();
+            }
+            return;
+        }
+        channel.write(buffer, startPosition + written, buffer, new CompletionHandler<Integer, ByteBuffer>() {
+            @Override
+            public void completed(Integer count, ByteBuffer buf) {
+                written += count;
+                writeNext(items, buf);
+            }
+
+            @Override
+            public void failed(Throwable exc, ByteBuffer buf) {
+                subscription.cancel();
+                fail(exc);
+            }
+        });
+    }
+
+    private void request() {
+        watchdog.waiting();
+        subscription.request(1);
+    }
+
+    private void inspectHeader(ByteBuffer item) throws NotPdfException {
+        if (pdfSource == null || headerLength == PDF_MAGIC.length) {
+            return;
+        }
+        for (int i = item.position(); i < item.limit() && headerLength < PDF_MAGIC.length; i++) {
+            header[headerLength++] = item.get(i);
+        }
+        for (int i = 0; i < headerLength; i++) {
+            if (header[i] != PDF_MAGIC[i]) {
+                throw new NotPdfException("Response is not a valid PDF: " + pdfSource);
+            }
+        }
+    }
+
+    private void finish() {
+        if (pdfSource != null && headerLength < PDF_MAGIC.length) {
+            fail(new NotPdfException("Response is not a valid PDF: " + pdfSource));
+            return;
+        }
+        watchdog.stop();
+        try {
+            channel.close();
+            result.complete(written);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void fail(Throwable error) {
+        if (watchdog != null) {
+            watchdog.stop();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Already failing
+        }
+        result.completeExceptionally(error);
+    }
+}
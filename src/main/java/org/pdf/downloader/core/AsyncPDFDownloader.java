@@ -0,0 +1,312 @@
+package org.pdf.downloader.core;
+
+import org.pdf.downloader.model.DownloadTask;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of {@link MultiThreadedPDFDownloader}: requests go out with
+ * {@code sendAsync}, bodies stream through {@link AsyncFileSubscriber} into an
+ * {@link AsynchronousFileChannel}, and retries are scheduled rather than slept, so no
+ * thread is held for the length of a transfer. Keeps the .part / Range resume, inline
+ * PDF check, conditional revalidation and content store of the blocking engine;
+ * large files are not segmented.
+ */
+public class AsyncPDFDownloader {
+
+    private final HttpTransport transport;
+    /** Ways to finish without a body, shared with the blocking engine; its store may be null. */
+    private final TransferShortcuts shortcuts;
+    private final Function<String, Throttle> throttles;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+
+    public AsyncPDFDownloader(HttpTransport transport, ContentStore store) {
+        this(transport, store, host -> Throttle.NONE);
+    }
+
+    public AsyncPDFDownloader(HttpTransport transport, ContentStore store, Function<String, Throttle> throttles) {
+        this(transport, store, throttles, RetryPolicy.DEFAULT, new CircuitBreaker());
+    }
+
+    public AsyncPDFDownloader(HttpTransport transport, ContentStore store, Function<String, Throttle> throttles,
+                              RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+        this.transport = transport;
+        this.shortcuts = new TransferShortcuts(store);
+        this.throttles = throttles;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Downloads the task. Cancelling the returned future aborts the request in flight
+     * (and its body) and stops further retries.
+     */
+    public CompletableFuture<DownloadManifest.Entry> download(DownloadTask task) {
+        Transfer transfer = new Transfer();
+        attempt(task, 1, transfer).whenComplete((entry, error) -> {
+            if (error != null) {
+                transfer.completeExceptionally(unwrap(error));
+            } else {
+                transfer.complete(entry);
+            }
+        });
+        return transfer;
+    }
+
+    private CompletableFuture<DownloadManifest.Entry> attempt(DownloadTask task, int attempt, Transfer transfer) {
+        String host;
+        boolean trial;
+        try {
+            host = hostOf(task);
+            trial = circuitBreaker.check(host);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<DownloadManifest.Entry> performed;
+        try {
+            performed = performDownload(task, transfer);
+        } catch (RuntimeException e) {
+            performed = CompletableFuture.failedFuture(e); // recorded as a failure below
+        }
+        return performed.handle((entry, error) -> {
+            if (error == null) {
+                circuitBreaker.recordSuccess(host);
+                return CompletableFuture.completedFuture(entry);
+            }
+            Throwable cause = unwrap(error);
+            if (transfer.isDone()) {
+                if (trial) {
+                    circuitBreaker.endTrial(host);
+                }
+                return CompletableFuture.<DownloadManifest.Entry>failedFuture(cause); // cancelled
+            }
+            IOException failure = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            circuitBreaker.recordFailure(host, failure);
+            long delay = retryPolicy.retryDelayMillis(failure, attempt);
+            if (delay < 0) {
+                return CompletableFuture.<DownloadManifest.Entry>failedFuture(retryPolicy.giveUp(failure, attempt));
+            }
+            // Scheduled instead of slept
+            return CompletableFuture.supplyAsync(() -> null,
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                .thenCompose(ignored -> attempt(task, attempt + 1, transfer));
+        }).thenCompose(f -> f);
+    }
+
+    private CompletableFuture<DownloadManifest.Entry> performDownload(DownloadTask task, Transfer transfer) {
+        try {
+            Path targetPath = Paths.get(task.getDownloadDir(), task.getFileName());
+            DownloadManifest.Entry local = shortcuts.beforeRequest(task, targetPath);
+            if (local != null) {
+                return CompletableFuture.completedFuture(local);
+            }
+            ContentStore.Record known = shortcuts.known(task);
+
+            PartFile partFile = PartFile.open(targetPath, task.getUrl());
+            long offset = partFile.resumeOffset();
+
+            HttpRequest.Builder request = transport.newRequest(task.getUrl()).GET();
+            if (offset > 0) {
+                request.header("Range", "bytes=" + offset + "-")
+                       .header("If-Range", partFile.validator());
+            } else {
+                shortcuts.addConditions(request, task, known);
+            }
+
+            MessageDigest digest = shortcuts.hasStore() ? ContentStore.newDigest() : null;
+            CompletableFuture<HttpResponse<Long>> sent = transport.client()
+                .sendAsync(request.build(), info -> bodyHandler(info, task, targetPath, partFile, offset, digest, known));
+            if (!transfer.attach(sent)) {
+                return CompletableFuture.failedFuture(new CancellationException("Download cancelled"));
+            }
+            return sent
+                .thenApply(response -> {
+                    try {
+                        return complete(task, targetPath, partFile, offset, response, digest, known);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .whenComplete((entry, error) -> {
+                    if (error != null && unwrap(error) instanceof NotPdfException) {
+                        // HTML error page: aborted on the first chunk and not worth resuming
+                        try {
+                            partFile.discard();
+                        } catch (IOException ignored) {
+                            // Retry will start over anyway
+                        }
+                    }
+                });
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Picks the body subscriber from status and headers: the file writer for a 200 whose
+     * content isn't stored yet or a 206 continuing the .part, a discard otherwise.
+     */
+    private HttpResponse.BodySubscriber<Long> bodyHandler(HttpResponse.ResponseInfo info, DownloadTask task,
+                                                          Path targetPath, PartFile partFile, long offset,
+                                                          MessageDigest digest, ContentStore.Record known) {
+        int status = info.statusCode();
+        boolean resuming = status == HttpResponses.HTTP_PARTIAL_CONTENT
+            && offset > 0 && HttpResponses.rangeStart(info.headers()) == offset;
+        if (!resuming && (status != HttpURLConnection.HTTP_OK
+                || !shortcuts.needsBody(task, targetPath, status, info.headers(), known))) {
+            return new SkippedBody();
+        }
+        try {
+            AsynchronousFileChannel channel;
+            if (resuming) {
+                channel = AsynchronousFileChannel.open(partFile.getPart(), StandardOpenOption.WRITE);
+            } else {
+                partFile.begin(task.getUrl(), info.headers());
+                channel = AsynchronousFileChannel.open(partFile.getPart(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            return new AsyncFileSubscriber(channel, resuming ? offset : 0,
+                resuming ? null : task.getUrl(), resuming ? null : digest, throttles.apply(hostOf(task)),
+                HttpTransport.READ_IDLE_TIMEOUT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DownloadManifest.Entry complete(DownloadTask task, Path targetPath, PartFile partFile, long offset,
+                                            HttpResponse<Long> response, MessageDigest digest,
+                                            ContentStore.Record known) throws IOException {
+        int status = response.statusCode();
+        if (offset > 0 && status == HttpResponses.HTTP_RANGE_NOT_SATISFIABLE) {
+            if (offset == HttpResponses.totalLength(response.headers())) {
+                partFile.commit();
+                shortcuts.store(task, targetPath, null, partFile.getEtag(), partFile.getLastModified());
+                return TransferShortcuts.entry(task, targetPath, partFile.getEtag(), partFile.getLastModified());
+            }
+            partFile.discard();
+            throw new IOException("Stale partial download discarded: " + response.uri());
+        }
+        if (status != HttpResponses.HTTP_PARTIAL_CONTENT) {
+            // 304 for the file on disk or a stored copy, or content already stored
+            DownloadManifest.Entry reused = shortcuts.withoutBody(task, targetPath, status, response.headers(), known);
+            if (reused != null) {
+                return reused;
+            }
+        }
+        HttpResponses.check(status, response.headers(), response.uri());
+        if (response.body() < 0) {
+            if (status == HttpURLConnection.HTTP_OK) {
+                // Body skipped for a stored blob that has gone since; the retry downloads it
+                throw new IOException("Stored copy vanished, downloading again: " + response.uri());
+            }
+            // 206 that didn't continue our .part
+            partFile.discard();
+            throw new IOException("Unexpected Content-Range for resumed download: " + response.uri());
+        }
+
+        boolean resumed = status == HttpResponses.HTTP_PARTIAL_CONTENT;
+        if (Files.size(partFile.getPart()) == 0) {
+            throw new IOException("Downloaded file is empty: " + partFile.getPart());
+        }
+        partFile.commit();
+        String etag = response.headers().firstValue("ETag").orElse(partFile.getEtag());
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(partFile.getLastModified());
+        shortcuts.store(task, targetPath, digest != null && !resumed ? ContentStore.hex(digest) : null, etag, lastModified);
+        return TransferShortcuts.entry(task, targetPath, etag, lastModified);
+    }
+
+    private static String hostOf(DownloadTask task) throws IOException {
+        String host = HttpTransport.toUri(task.getUrl()).getHost();
+        return host != null ? host : "unknown";
+    }
+
+    /** Result of one download across its attempts; cancelling it aborts the request in flight. */
+    private static class Transfer extends CompletableFuture<DownloadManifest.Entry> {
+        private CompletableFuture<?> current;
+
+        /** Makes {@code request} the one to abort on cancel; false (and aborted) when already cancelled. */
+        synchronized boolean attach(CompletableFuture<?> request) {
+            if (isCancelled()) {
+                request.cancel(true);
+                return false;
+            }
+            current = request;
+            return true;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            CompletableFuture<?> request;
+            synchronized (this) {
+                request = current;
+            }
+            if (cancelled && request != null) {
+                request.cancel(true); // aborts the exchange, which fails the body subscriber
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * Body that isn't wanted: cancels the subscription straight away, so a 200 whose
+     * content is already stored closes its connection instead of draining the whole file.
+     */
+    private static class SkippedBody implements HttpResponse.BodySubscriber<Long> {
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        @Override
+        public CompletionStage<Long> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.cancel();
+            result.complete(-1L);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            // Cancelled on subscribe
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.complete(-1L);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(-1L);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable t = error;
+        while ((t instanceof CompletionException || t instanceof UncheckedIOException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+}
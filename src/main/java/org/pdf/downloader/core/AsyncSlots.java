@@ -0,0 +1,71 @@
+package org.pdf.downloader.core;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A fixed number of slots handed out oldest request first, as futures: a task waiting
+ * for a slot holds no thread. Cancelling a pending request withdraws it. A producer can
+ * also block until a slot is free without taking it, to pace how fast it hands out work.
+ */
+public class AsyncSlots {
+
+    private final int capacity;
+    private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private int used;
+
+    public AsyncSlots(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /** Completes once a slot is held; the holder must call {@link #release} exactly once. */
+    public synchronized CompletableFuture<Void> acquire() {
+        if (used < capacity && waiting.isEmpty()) {
+            used++;
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> request = new CompletableFuture<>();
+        waiting.addLast(request);
+        return request;
+    }
+
+    /** Passes the slot to the oldest request still waiting, or frees it. */
+    public void release() {
+        while (true) {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiting.pollFirst();
+                if (next == null) {
+                    used--;
+                    notifyAll();
+                    return;
+                }
+            }
+            // Completed outside the lock: the holder's continuation may run right here
+            if (next.complete(null)) {
+                return;
+            }
+            // Cancelled while waiting: try the next one
+        }
+    }
+
+    /** Blocks until a slot could be taken right now. */
+    public synchronized void awaitFree() throws InterruptedException {
+        while (used >= capacity || !waiting.isEmpty()) {
+            wait();
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized int inUse() {
+        return used;
+    }
+
+    public synchronized int queueDepth() {
+        return waiting.size();
+    }
+}
@@ -0,0 +1,75 @@
+package org.pdf.downloader.core;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide bandwidth budgets: one global bucket plus one bucket per host, combined
+ * with a job's own bucket for each transfer. Every limit can be changed while downloads
+ * are running; 0 means unlimited.
+ */
+public class BandwidthShaper {
+
+    private final TokenBucket global;
+    private final Map<String, TokenBucket> hosts = new ConcurrentHashMap<>();
+    /** Hosts given their own rate with setHostRate; the default no longer applies to them. */
+    private final Set<String> explicitHosts = ConcurrentHashMap.newKeySet();
+    private volatile long defaultHostRate;
+
+    public BandwidthShaper(long globalBytesPerSecond, long perHostBytesPerSecond) {
+        this.global = new TokenBucket(globalBytesPerSecond);
+        this.defaultHostRate = perHostBytesPerSecond;
+    }
+
+    /** Throttle for one transfer: waits for whichever of global, host and job budgets is tightest. */
+    public Throttle throttle(String host, Throttle job) {
+        TokenBucket hostBucket = hosts.computeIfAbsent(host, h -> new TokenBucket(defaultHostRate));
+        Throttle jobThrottle = job != null ? job : Throttle.NONE;
+        return new Throttle() {
+            @Override
+            public long reserve(long bytes) {
+                return Math.max(global.reserve(bytes), Math.max(hostBucket.reserve(bytes), jobThrottle.reserve(bytes)));
+            }
+
+            @Override
+            public boolean isActive() {
+                return global.isActive() || hostBucket.isActive() || jobThrottle.isActive();
+            }
+        };
+    }
+
+    public long getGlobalRate() {
+        return global.getRate();
+    }
+
+    public void setGlobalRate(long bytesPerSecond) {
+        global.setRate(bytesPerSecond);
+    }
+
+    public long getDefaultHostRate() {
+        return defaultHostRate;
+    }
+
+    /** New default for every host without an explicit rate; also applied to hosts already seen. */
+    public synchronized void setDefaultHostRate(long bytesPerSecond) {
+        this.defaultHostRate = bytesPerSecond;
+        hosts.forEach((host, bucket) -> {
+            if (!explicitHosts.contains(host)) {
+                bucket.setRate(bytesPerSecond);
+            }
+        });
+    }
+
+    public synchronized void setHostRate(String host, long bytesPerSecond) {
+        explicitHosts.add(host);
+        hosts.computeIfAbsent(host, h -> new TokenBucket(bytesPerSecond)).setRate(bytesPerSecond);
+    }
+
+    public Map<String, Long> getHostRates() {
+        Map<String, Long> rates = new TreeMap<>();
+        hosts.forEach((host, bucket) -> rates.put(host, bucket.getRate()));
+        return rates;
+    }
+}
@@ -0,0 +1,136 @@
+package org.pdf.downloader.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Copies a response channel into a file with positional writes through pooled direct
+ * buffers (no heap byte[] round trip). Can check the {@code %PDF} magic on the first
+ * chunk as it arrives, so an HTML error page is rejected before anything is written
+ * and the finished file never has to be reopened for validation (or hashing).
+ */
+public class ChannelCopy {
+
+    private static final int BUFFER_SIZE = 65536; // 64KB
+    private static final int MAX_POOLED_BUFFERS = 64;
+    /** Smaller chunks while throttled, so concurrent tasks take turns at a finer grain. */
+    private static final int THROTTLED_CHUNK = 16384; // 16KB
+    private static final byte[] PDF_MAGIC = {'%', 'P', 'D', 'F'};
+    private static final ConcurrentLinkedQueue<ByteBuffer> BUFFER_POOL = new ConcurrentLinkedQueue<>();
+
+    private final ReadableByteChannel source;
+    private final FileChannel target;
+    private final long startPosition;
+    private String pdfSource;
+    private MessageDigest digest;
+    private Throttle throttle = Throttle.NONE;
+    private long transferred;
+
+    public ChannelCopy(ReadableByteChannel source, FileChannel target, long position) {
+        this.source = source;
+        this.target = target;
+        this.startPosition = position;
+    }
+
+    /** Reject the body unless its first bytes are the PDF magic; {@code name} is used in the error. */
+    public ChannelCopy expectPdfHeader(String name) {
+        this.pdfSource = name;
+        return this;
+    }
+
+    /** Feed every written byte to {@code digest} (hash while streaming, no second read). */
+    public ChannelCopy digest(MessageDigest digest) {
+        this.digest = digest;
+        return this;
+    }
+
+    /** Pace writes through {@code throttle} (bandwidth shaping). */
+    public ChannelCopy throttle(Throttle throttle) {
+        this.throttle = throttle != null ? throttle : Throttle.NONE;
+        return this;
+    }
+
+    /** Bytes written so far – still valid after {@link #run} throws, so callers can resume from there. */
+    public long transferred() {
+        return transferred;
+    }
+
+    /** Copies until EOF or {@code maxBytes}, whichever comes first; returns bytes written. */
+    public long run(long maxBytes) throws IOException {
+        ByteBuffer buffer = acquire();
+        try {
+            boolean headerPending = pdfSource != null;
+            while (transferred < maxBytes) {
+                // Budgets can be set or lifted mid-transfer, so the chunk size follows them
+                boolean throttled = throttle.isActive();
+                buffer.limit((int) Math.min(throttled ? THROTTLED_CHUNK : buffer.capacity(), maxBytes - transferred));
+                int read = source.read(buffer);
+                if (read == -1) {
+                    break;
+                }
+                if (headerPending) {
+                    if (buffer.position() < PDF_MAGIC.length && buffer.hasRemaining()) {
+                        continue; // need at least 4 bytes before deciding
+                    }
+                    checkPdfHeader(buffer);
+                    headerPending = false;
+                }
+                buffer.flip();
+                if (throttled) {
+                    pause(throttle.reserve(buffer.remaining()));
+                }
+                if (digest != null) {
+                    digest.update(buffer.duplicate());
+                }
+                while (buffer.hasRemaining()) {
+                    transferred += target.write(buffer, startPosition + transferred);
+                }
+                buffer.clear();
+            }
+            if (headerPending) {
+                checkPdfHeader(buffer); // short body that ended before the magic was complete
+            }
+            return transferred;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private static void pause(long nanos) throws IOException {
+        long deadline = System.nanoTime() + nanos;
+        for (long left = nanos; left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while throttled");
+            }
+        }
+    }
+
+    private void checkPdfHeader(ByteBuffer buffer) throws NotPdfException {
+        if (buffer.position() < PDF_MAGIC.length) {
+            throw new NotPdfException("Response is not a valid PDF: " + pdfSource);
+        }
+        for (int i = 0; i < PDF_MAGIC.length; i++) {
+            if (buffer.get(i) != PDF_MAGIC[i]) {
+                throw new NotPdfException("Response is not a valid PDF: " + pdfSource);
+            }
+        }
+    }
+
+    private static ByteBuffer acquire() {
+        ByteBuffer buffer = BUFFER_POOL.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private static void release(ByteBuffer buffer) {
+        if (BUFFER_POOL.size() < MAX_POOLED_BUFFERS) {
+            BUFFER_POOL.offer(buffer);
+        }
+    }
+}
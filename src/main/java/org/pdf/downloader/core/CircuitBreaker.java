@@ -0,0 +1,142 @@
+package org.pdf.downloader.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-host circuit breaker. After a run of consecutive transient/throttling failures the
+ * host's circuit opens and tasks for it fail immediately instead of occupying a worker
+ * through retries and timeouts. After the cooldown one trial request is let through
+ * (half-open); its success closes the circuit, its failure reopens it. Permanent errors
+ * such as 404 mean the host is answering, so they count as a healthy response.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Map<String, HostCircuit> hosts = new ConcurrentHashMap<>();
+
+    public CircuitBreaker() {
+        this(5, 30_000);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Throws when the host's circuit is open; in half-open state admits a single trial
+     * request and returns true for it. The caller must end a trial with recordSuccess,
+     * recordFailure or {@link #endTrial}, or no further request gets through.
+     */
+    public boolean check(String host) throws CircuitOpenException {
+        return hosts.computeIfAbsent(host, h -> new HostCircuit()).check(host);
+    }
+
+    /** Lets another trial through when the one admitted by check ended without an outcome (cancelled). */
+    public void endTrial(String host) {
+        HostCircuit circuit = hosts.get(host);
+        if (circuit != null) {
+            circuit.endTrial();
+        }
+    }
+
+    public void recordSuccess(String host) {
+        HostCircuit circuit = hosts.get(host);
+        if (circuit != null) {
+            circuit.success(host);
+        }
+    }
+
+    public void recordFailure(String host, Throwable error) {
+        if (RetryPolicy.classify(error) == RetryPolicy.FailureKind.PERMANENT) {
+            if (!(error instanceof CircuitOpenException)) {
+                recordSuccess(host);
+            }
+            return;
+        }
+        hosts.computeIfAbsent(host, h -> new HostCircuit()).failure(host);
+    }
+
+    /** State of one host's circuit; CLOSED for a host not seen yet. */
+    public State state(String host) {
+        HostCircuit circuit = hosts.get(host);
+        return circuit != null ? circuit.state() : State.CLOSED;
+    }
+
+    /** State per host, for logging / status endpoints. */
+    public Map<String, State> states() {
+        Map<String, State> states = new TreeMap<>();
+        hosts.forEach((host, circuit) -> states.put(host, circuit.state()));
+        return states;
+    }
+
+    private class HostCircuit {
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean trialInFlight;
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized boolean check(String host) throws CircuitOpenException {
+            if (state == State.CLOSED) {
+                return false;
+            }
+            long elapsed = System.currentTimeMillis() - openedAt;
+            if (state == State.OPEN && elapsed >= openMillis) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == State.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return true;
+            }
+            throw new CircuitOpenException(host, Math.max(0, openMillis - elapsed));
+        }
+
+        synchronized void endTrial() {
+            if (state == State.HALF_OPEN) {
+                trialInFlight = false;
+            }
+        }
+
+        void success(String host) {
+            boolean closed;
+            synchronized (this) {
+                closed = state != State.CLOSED;
+                state = State.CLOSED;
+                consecutiveFailures = 0;
+                trialInFlight = false;
+            }
+            if (closed) {
+                System.out.println("🟢 Circuit closed for " + host);
+            }
+        }
+
+        void failure(String host) {
+            boolean opened;
+            int failures;
+            synchronized (this) {
+                failures = ++consecutiveFailures;
+                opened = state == State.HALF_OPEN
+                    || state == State.CLOSED && failures >= failureThreshold;
+                if (opened) {
+                    state = State.OPEN;
+                    openedAt = System.currentTimeMillis();
+                    trialInFlight = false;
+                }
+            }
+            if (opened) {
+                System.out.println("🔴 Circuit open for " + host + " after " + failures
+                    + " failures; failing fast for " + (openMillis / 1000) + "s");
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.pdf.downloader.core;
+
+import java.io.IOException;
+
+/**
+ * Task failed fast because the host's {@link CircuitBreaker} is open: recent requests
+ * kept failing, so nothing was sent.
+ */
+public class CircuitOpenException extends IOException {
+    private final String host;
+
+    public CircuitOpenException(String host, long retryInMillis) {
+        super("Host " + host + " is failing, skipped without a request (retry in " + (retryInMillis / 1000) + "s)");
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
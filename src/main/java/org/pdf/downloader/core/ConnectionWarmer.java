@@ -0,0 +1,162 @@
+package org.pdf.downloader.core;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Warms the download path to each host while discovery is still parsing pages: the
+ * hostname is resolved (filling the JVM's DNS cache) and a few HEAD requests open
+ * pooled connections in the shared {@link HttpTransport}, so the first downloads to
+ * that host skip DNS, TCP connect and TLS. Each origin is timed cold and then warm;
+ * the difference is the time-to-first-byte a download no longer has to pay.
+ */
+public class ConnectionWarmer {
+
+    private static final Duration WARM_TIMEOUT = Duration.ofSeconds(10);
+    /** Blocking DNS lookups for every job; lookups for more new hosts than this wait their turn. */
+    private static final int DNS_THREADS = 4;
+    private static final ExecutorService DNS_POOL = Executors.newFixedThreadPool(DNS_THREADS, r -> {
+        Thread t = new Thread(r, "pdf-warmup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final HttpTransport transport;
+    private final int connectionsPerHost;
+    private final Map<String, Warmup> origins = new ConcurrentHashMap<>();
+
+    /** @param connectionsPerHost pooled connections to pre-open per origin (the first wave's width) */
+    public ConnectionWarmer(HttpTransport transport, int connectionsPerHost) {
+        this.transport = transport;
+        this.connectionsPerHost = Math.max(1, connectionsPerHost);
+    }
+
+    /** Starts warming the origin of {@code url} in the background; later calls for the same origin are no-ops. */
+    public void warm(String url) {
+        URI uri = toUri(url);
+        if (uri == null) {
+            return;
+        }
+        origins.computeIfAbsent(originOf(uri), o -> {
+            Warmup warmup = new Warmup();
+            CompletableFuture<Long> saved = CompletableFuture.supplyAsync(() -> resolve(uri.getHost()), DNS_POOL)
+                .thenCompose(dnsNanos -> connect(o).thenApply(connectNanos -> dnsNanos + connectNanos));
+            saved.whenComplete((nanos, error) -> warmup.finish(error == null ? nanos : 0L));
+            return warmup;
+        });
+    }
+
+    /** Marks a download to {@code url} starting; a warm-up that finishes later didn't help that host. */
+    public void firstUse(String url) {
+        URI uri = toUri(url);
+        Warmup warmup = uri != null ? origins.get(originOf(uri)) : null;
+        if (warmup != null) {
+            warmup.use();
+        }
+    }
+
+    /**
+     * One-line summary: only origins that were warm before their first download count as
+     * saved time; origins never downloaded from (job cancelled) don't count at all.
+     */
+    public String report() {
+        long savedNanos = 0;
+        int used = 0;
+        int ready = 0;
+        for (Warmup warmup : origins.values()) {
+            if (warmup.firstUseAt == Long.MAX_VALUE) {
+                continue;
+            }
+            used++;
+            if (warmup.finishedAt <= warmup.firstUseAt) {
+                savedNanos += warmup.savedNanos;
+                ready++;
+            }
+        }
+        return "Connection warm-up: " + ready + "/" + used + " hosts warm before their first download, ~"
+            + (savedNanos / 1_000_000) + " ms time-to-first-byte saved";
+    }
+
+    private static URI toUri(String url) {
+        try {
+            URI uri = HttpTransport.toUri(url);
+            return uri.getHost() != null && uri.getScheme() != null ? uri : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String originOf(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() > 0 ? ":" + uri.getPort() : "");
+    }
+
+    private static long resolve(String host) {
+        long start = System.nanoTime();
+        try {
+            InetAddress.getAllByName(host);
+        } catch (UnknownHostException e) {
+            // The download will report it; nothing to warm
+        }
+        return System.nanoTime() - start;
+    }
+
+    /** Opens the pooled connections; completes with cold-minus-warm request time (connect + handshake), 0 when unreachable. */
+    private CompletableFuture<Long> connect(String origin) {
+        List<CompletableFuture<Long>> cold = new ArrayList<>();
+        for (int i = 0; i < connectionsPerHost; i++) {
+            cold.add(head(origin));
+        }
+        return CompletableFuture.allOf(cold.toArray(new CompletableFuture[0]))
+            .thenCompose(ignored -> head(origin))
+            .thenApply(warmNanos -> {
+                long coldNanos = cold.stream().mapToLong(CompletableFuture::join).min().orElse(warmNanos);
+                // Unreachable host: nothing was pooled, nothing saved
+                return coldNanos < 0 || warmNanos < 0 ? 0L : Math.max(0, coldNanos - warmNanos);
+            });
+    }
+
+    private CompletableFuture<Long> head(String origin) {
+        HttpRequest request;
+        try {
+            request = transport.newRequest(origin + "/")
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(WARM_TIMEOUT)
+                .build();
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+        long start = System.nanoTime();
+        // Any status will do: the point is the connection left in the pool
+        return transport.client().sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .handle((response, error) -> error == null ? System.nanoTime() - start : -1L);
+    }
+
+    private static class Warmup {
+        private volatile long savedNanos;
+        private volatile long finishedAt = Long.MAX_VALUE;
+        private volatile long firstUseAt = Long.MAX_VALUE;
+
+        void finish(long savedNanos) {
+            this.savedNanos = savedNanos;
+            this.finishedAt = System.nanoTime();
+        }
+
+        synchronized void use() {
+            if (firstUseAt == Long.MAX_VALUE) {
+                firstUseAt = System.nanoTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package org.pdf.downloader.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content-addressed blob store shared by all jobs. Every downloaded PDF is kept once
+ * under {@code blobs/<aa>/<sha256>.pdf} and materialized into each job's directory as a
+ * hardlink (copy when linking isn't possible). An append-only index maps URL → blob and
+ * origin + ETag + Content-Length → blob, so a later job can link a known file instead of
+ * downloading it again; it is compacted when the store is opened. ETags only identify content within one server, so a validator
+ * match never crosses origins.
+ */
+public class ContentStore {
+
+    private static final String INDEX_FILE = "index.tsv";
+    /** A URL known to the store is linked without any request for this long after it was last confirmed. */
+    private static final Duration TRUST_FOR = DownloadManifest.DEFAULT_REVALIDATE_AFTER;
+
+    private final Path root;
+    private final Path blobs;
+    /** Keyed by canonical URL, so tracking-parameter and encoding variants share a record. */
+    private final Map<String, Record> byUrl = new ConcurrentHashMap<>();
+    /** Keyed by origin, ETag and length. */
+    private final Map<String, String> byValidator = new ConcurrentHashMap<>();
+
+    public ContentStore(Path root) throws IOException {
+        this.root = root;
+        this.blobs = root.resolve("blobs");
+        Files.createDirectories(blobs);
+        loadIndex();
+    }
+
+    /** Store under ~/Downloads/PDFAPP/.pdf-store – same volume as the download dirs, so hardlinks work. */
+    public static ContentStore openDefault() throws IOException {
+        return new ContentStore(Paths.get(System.getProperty("user.home"), "Downloads", "PDFAPP", ".pdf-store"));
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** Hashes a file already on disk (resumed and segmented downloads, which aren't hashed in-stream). */
+    public static String hashFile(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(65536);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return hex(digest);
+    }
+
+    /** Record for a URL whose blob is still present, or null. */
+    public Record lookupUrl(String url) {
+        Record record = byUrl.get(UrlCanonicalizer.canonicalize(url));
+        return record != null && Files.exists(blobPath(record.getHash())) ? record : null;
+    }
+
+    /**
+     * Blob hash for a validator pair seen on another URL of the same origin as {@code url},
+     * or null. Weak or missing ETags never match.
+     */
+    public String lookupValidator(String url, String etag, long length) {
+        if (etag == null || etag.startsWith("W/") || length < 0) {
+            return null;
+        }
+        String hash = byValidator.get(validatorKey(url, etag, length));
+        return hash != null && Files.exists(blobPath(hash)) ? hash : null;
+    }
+
+    public boolean isFresh(Record record) {
+        return System.currentTimeMillis() - record.getCheckedAt() <= TRUST_FOR.toMillis();
+    }
+
+    /** Links the blob into place as {@code target}. */
+    public void materialize(String hash, Path target) throws IOException {
+        linkOrCopy(blobPath(hash), target);
+    }
+
+    /**
+     * Puts a hardlink to {@code source} in place as {@code target}, replacing it; a copy
+     * when linking isn't possible. Goes through a {@code .link} sibling, so {@code target}
+     * never shows up half-copied.
+     */
+    public static void linkOrCopy(Path source, Path target) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".link");
+        Files.deleteIfExists(tmp);
+        try {
+            Files.createLink(tmp, source);
+        } catch (IOException | UnsupportedOperationException e) {
+            // Different volume or no hardlink support: fall back to a private copy
+            Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Adopts a freshly downloaded file: the first copy of some content becomes the blob,
+     * later identical copies are replaced by a link to it. Records the URL and validators.
+     */
+    public void ingest(Path file, String hash, String url, String etag, String lastModified) throws IOException {
+        Path blob = blobPath(hash);
+        long size = Files.size(file);
+        Files.createDirectories(blob.getParent());
+        try {
+            Files.createLink(blob, file);
+        } catch (FileAlreadyExistsException e) {
+            materialize(hash, file);
+        } catch (IOException | UnsupportedOperationException e) {
+            // No hardlinks here: copy aside and move into place, so a reader never links a half-written blob
+            Path tmp = Files.createTempFile(blob.getParent(), hash, ".tmp");
+            try {
+                Files.copy(file, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        record(new Record(url, hash, size, etag, lastModified, System.currentTimeMillis()));
+    }
+
+    /** Links a blob first stored for another URL and records this URL against it. */
+    public void adopt(String hash, Path target, String url, String etag, String lastModified) throws IOException {
+        materialize(hash, target);
+        record(new Record(url, hash, Files.size(target), etag, lastModified, System.currentTimeMillis()));
+    }
+
+    /** Marks a URL's record as just confirmed (304). */
+    public void touch(Record record) throws IOException {
+        record(new Record(record.getUrl(), record.getHash(), record.getSize(),
+            record.getEtag(), record.getLastModified(), System.currentTimeMillis()));
+    }
+
+    private synchronized void record(Record record) throws IOException {
+        index(record);
+        try (BufferedWriter writer = Files.newBufferedWriter(root.resolve(INDEX_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(record.format());
+            writer.newLine();
+        }
+    }
+
+    private void index(Record record) {
+        byUrl.put(UrlCanonicalizer.canonicalize(record.getUrl()), record);
+        if (record.getEtag() != null && !record.getEtag().startsWith("W/")) {
+            byValidator.put(validatorKey(record.getUrl(), record.getEtag(), record.getSize()), record.getHash());
+        }
+    }
+
+    private static String validatorKey(String url, String etag, long length) {
+        return UrlCanonicalizer.origin(url) + " " + etag + "|" + length;
+    }
+
+    /**
+     * Loads the latest record per URL, dropping those whose blob is gone, and rewrites the
+     * index with just those when that leaves anything out.
+     */
+    private void loadIndex() throws IOException {
+        Path index = root.resolve(INDEX_FILE);
+        if (!Files.exists(index)) {
+            return;
+        }
+        Map<String, Record> latest = new LinkedHashMap<>();
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                Record record = Record.parse(line);
+                if (record != null) {
+                    latest.put(UrlCanonicalizer.canonicalize(record.getUrl()), record); // later lines win
+                }
+            }
+        }
+        latest.values().removeIf(record -> !Files.exists(blobPath(record.getHash())));
+        latest.values().forEach(this::index);
+        if (latest.size() < lines) {
+            try {
+                rewriteIndex(index, latest.values());
+            } catch (IOException e) {
+                System.err.println("⚠️ Could not compact " + index + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void rewriteIndex(Path index, Collection<Record> records) throws IOException {
+        Path tmp = index.resolveSibling(INDEX_FILE + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Record record : records) {
+                writer.write(record.format());
+                writer.newLine();
+            }
+        }
+        try {
+            Files.move(tmp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, index, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path blobPath(String hash) {
+        return blobs.resolve(hash.substring(0, 2)).resolve(hash + ".pdf");
+    }
+
+    public static class Record {
+        private final String url;
+        private final String hash;
+        private final long size;
+        private final String etag;
+        private final String lastModified;
+        private final long checkedAt;
+
+        public Record(String url, String hash, long size, String etag, String lastModified, long checkedAt) {
+            this.url = url;
+            this.hash = hash;
+            this.size = size;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.checkedAt = checkedAt;
+        }
+
+        public String getUrl() { return url; }
+        public String getHash() { return hash; }
+        public long getSize() { return size; }
+        public String getEtag() { return etag; }
+        public String getLastModified() { return lastModified; }
+        public long getCheckedAt() { return checkedAt; }
+
+        private String format() {
+            return String.join("\t", url, hash, Long.toString(size),
+                etag == null ? "" : etag, lastModified == null ? "" : lastModified, Long.toString(checkedAt));
+        }
+
+        private static Record parse(String line) {
+            String[] parts = line.split("\t", -1);
+            if (parts.length != 6 || parts[1].length() != 64) {
+                return null;
+            }
+            try {
+                return new Record(parts[0], parts[1], Long.parseLong(parts[2]),
+                    parts[3].isEmpty() ? null : parts[3], parts[4].isEmpty() ? null : parts[4],
+                    Long.parseLong(parts[5]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.pdf.downloader.core;
+
+import org.pdf.downloader.model.DownloadTask;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeSet;
+
+/**
+ * On-disk crawl state for one crawl (start URL and limits) into a download directory,
+ * kept under {@code .pdf-crawl/<hash of the crawl key>/}:
+ * <ul>
+ *   <li>{@code frontier.log} – append-only queue of pages ({@code depth, length, url}),
+ *       read in order, so the crawl stays breadth-first;</li>
+ *   <li>{@code frontier.cursor} – mapped offset of the first page not yet finished,
+ *       plus a completed flag;</li>
+ *   <li>{@code pages.idx} / {@code pdfs.idx} – {@link MappedFingerprintSet}s of page
+ *       and PDF URLs already queued;</li>
+ *   <li>{@code tasks.log} – every PDF task published, replayed when resuming;</li>
+ *   <li>{@code crawl.key} – start URL and limits the state belongs to;</li>
+ *   <li>{@code crawl.lock} – held while the state is open, so a second job running the
+ *       same crawl into the same directory waits instead of sharing the files.</li>
+ * </ul>
+ * A crawl that stopped early (timeout, restart) resumes from the cursor when the same
+ * start URL and limits are crawled into the same directory again; a finished one
+ * starts over. Crawls with other start URLs or limits have state of their own.
+ * Nothing grows on the heap with the number of pages.
+ */
+public class CrawlFrontier implements Closeable {
+
+    private static final String DIR = ".pdf-crawl";
+    private static final int RECORD_HEADER = 8; // int depth + int url length
+
+    private final Path dir;
+    private final String downloadDir;
+    private final LockFile lock;
+    private final boolean resumed;
+    private final FileChannel log;
+    private final FileChannel cursorChannel;
+    private final MappedByteBuffer cursor;
+    private final MappedFingerprintSet pages;
+    private final MappedFingerprintSet pdfs;
+    private final BufferedWriter tasks;
+    /** Offsets of pages handed out and not yet done; the lowest one is the resume point. */
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private long readOffset;
+    private long writeOffset;
+    private long queued;
+    private long finished;
+
+    private CrawlFrontier(Path dir, String downloadDir, LockFile lock, boolean resumed) throws IOException {
+        this.dir = dir;
+        this.downloadDir = downloadDir;
+        this.lock = lock;
+        this.resumed = resumed;
+        this.log = FileChannel.open(dir.resolve("frontier.log"), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.cursorChannel = FileChannel.open(dir.resolve("frontier.cursor"), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.cursor = cursorChannel.map(FileChannel.MapMode.READ_WRITE, 0, 16);
+        this.pages = new MappedFingerprintSet(dir.resolve("pages.idx"));
+        this.pdfs = new MappedFingerprintSet(dir.resolve("pdfs.idx"));
+        this.tasks = Files.newBufferedWriter(dir.resolve("tasks.log"), StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.writeOffset = log.size();
+        this.readOffset = resumed ? Math.min(cursor.getLong(0), writeOffset) : 0;
+        this.queued = pages.size();
+    }
+
+    /**
+     * Opens the state of the crawl {@code crawlKey} (canonical start URL and every limit)
+     * in {@code downloadDir}, waiting while another job has it open. Resumes when that
+     * crawl is unfinished on disk, otherwise starts from empty files.
+     */
+    public static CrawlFrontier open(String downloadDir, String crawlKey) throws IOException {
+        Path dir = Path.of(downloadDir).resolve(DIR)
+            .resolve(Long.toHexString(UrlCanonicalizer.fingerprint(crawlKey)));
+        Files.createDirectories(dir);
+        LockFile lock = LockFile.acquire(dir.resolve("crawl.lock"));
+        try {
+            Path key = dir.resolve("crawl.key");
+            boolean resume = false;
+            if (Files.exists(key) && Files.readString(key, StandardCharsets.UTF_8).equals(crawlKey)) {
+                try (FileChannel channel = FileChannel.open(dir.resolve("frontier.cursor"), StandardOpenOption.READ)) {
+                    ByteBuffer flags = ByteBuffer.allocate(16);
+                    channel.read(flags, 0);
+                    resume = flags.position() == 16 && flags.getLong(8) == 0;
+                } catch (IOException e) {
+                    resume = false;
+                }
+            }
+            if (!resume) {
+                reset(dir);
+                Files.writeString(key, crawlKey, StandardCharsets.UTF_8);
+            }
+            return new CrawlFrontier(dir, downloadDir, lock, resume);
+        } catch (IOException | RuntimeException e) {
+            lock.close();
+            throw e;
+        }
+    }
+
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /** Pages queued so far, including ones finished in an earlier run. */
+    public synchronized long queued() {
+        return queued;
+    }
+
+    public synchronized long finished() {
+        return finished;
+    }
+
+    /**
+     * Queues a page unless it was seen before or {@code maxQueued} pages are already
+     * queued. Returns whether it was added.
+     */
+    public synchronized boolean addPage(String url, int depth, long maxQueued) throws IOException {
+        if (queued >= maxQueued) {
+            return false;
+        }
+        if (!pages.add(UrlCanonicalizer.fingerprint(UrlCanonicalizer.canonicalize(url)))) {
+            return false;
+        }
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + bytes.length);
+        record.putInt(depth).putInt(bytes.length).put(bytes).flip();
+        while (record.hasRemaining()) {
+            writeOffset += log.write(record, writeOffset);
+        }
+        queued++;
+        notifyAll();
+        return true;
+    }
+
+    /** True the first time a (canonical) PDF URL is offered, in this run or an earlier one. */
+    public boolean addPdf(String canonicalUrl) throws IOException {
+        return pdfs.add(UrlCanonicalizer.fingerprint(canonicalUrl));
+    }
+
+    /** Logs a published task so a resumed crawl can hand it out again. */
+    public synchronized void recordTask(DownloadTask task) throws IOException {
+        tasks.write(task.getUrl() + "\t" + task.getFileName());
+        tasks.newLine();
+        tasks.flush();
+    }
+
+    /** Streams the tasks logged by earlier runs (the manifest filters the finished ones). */
+    public void replayTasks(TaskSink sink) throws IOException, InterruptedException {
+        synchronized (this) {
+            tasks.flush();
+        }
+        try (BufferedReader reader = Files.newBufferedReader(dir.resolve("tasks.log"), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab > 0 && !sink.accept(new DownloadTask(line.substring(0, tab), line.substring(tab + 1), downloadDir))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Next page to fetch, waiting while the log is drained but pages in flight may still
+     * add more. Returns null once the frontier is exhausted.
+     */
+    public synchronized Page next() throws IOException, InterruptedException {
+        while (readOffset >= writeOffset) {
+            if (inFlight.isEmpty()) {
+                return null;
+            }
+            wait();
+        }
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        readFully(header, readOffset);
+        int depth = header.getInt(0);
+        ByteBuffer url = ByteBuffer.allocate(header.getInt(4));
+        readFully(url, readOffset + RECORD_HEADER);
+        Page page = new Page(new String(url.array(), StandardCharsets.UTF_8), depth, readOffset);
+        inFlight.add(readOffset);
+        readOffset += RECORD_HEADER + url.capacity();
+        return page;
+    }
+
+    /** Marks a page handled (fetched or failed) and moves the resume cursor past finished pages. */
+    public synchronized void done(Page page) {
+        inFlight.remove(page.offset);
+        finished++;
+        cursor.putLong(0, inFlight.isEmpty() ? readOffset : inFlight.first());
+        notifyAll();
+    }
+
+    /** Crawl ran to the end; the next run of the same start URL starts over. */
+    public synchronized void markComplete() {
+        cursor.putLong(8, 1);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            tasks.close();
+            cursor.force();
+            cursorChannel.close();
+            log.close();
+            pages.close();
+            pdfs.close();
+        } finally {
+            lock.close();
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated crawl frontier: " + dir);
+            }
+        }
+    }
+
+    /** Only called with the crawl's lock held, so no other job has these files open. */
+    private static void reset(Path dir) throws IOException {
+        for (String name : new String[] {"frontier.log", "frontier.cursor", "pages.idx", "pdfs.idx", "tasks.log", "crawl.key"}) {
+            Files.deleteIfExists(dir.resolve(name));
+        }
+    }
+
+    /** Consumer of replayed tasks; returning false stops the replay. */
+    @FunctionalInterface
+    public interface TaskSink {
+        boolean accept(DownloadTask task) throws InterruptedException;
+    }
+
+    public static class Page {
+        private final String url;
+        private final int depth;
+        private final long offset;
+
+        private Page(String url, int depth, long offset) {
+            this.url = url;
+            this.depth = depth;
+            this.offset = offset;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.pdf.downloader.core;
+
+/**
+ * How {@link EnhancedDownloadManager} finds PDF links.
+ */
+public enum DiscoveryMode {
+    /** Parse the start page (and nested pages when enabled). */
+    CRAWL,
+    /** Read robots.txt and the site's sitemaps; falls back to CRAWL when the site has none. */
+    SITEMAP;
+
+    /** Lenient parse for request parameters; anything unknown means CRAWL. */
+    public static DiscoveryMode from(String value) {
+        if (value != null && value.trim().equalsIgnoreCase("sitemap")) {
+            return SITEMAP;
+        }
+        return CRAWL;
+    }
+}
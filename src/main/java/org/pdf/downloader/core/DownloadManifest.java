@@ -0,0 +1,212 @@
+package org.pdf.downloader.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-directory record of what was downloaded from where: URL → (file, size, ETag,
+ * Last-Modified, last check). Lets the scheduler skip files that are already on disk
+ * without touching the network and revalidate older ones with a conditional GET.
+ * Stored as a tab-separated {@code .pdf-manifest.tsv} in the download directory; jobs
+ * sharing a directory merge into it (see {@link #save}).
+ */
+public class DownloadManifest {
+
+    public static final String FILE_NAME = ".pdf-manifest.tsv";
+    /** How long a recorded file is trusted before it is revalidated with If-None-Match / If-Modified-Since. */
+    public static final Duration DEFAULT_REVALIDATE_AFTER = Duration.ofDays(7);
+
+    private final Path file;
+    private final Duration revalidateAfter;
+    /** Keyed by canonical URL; entries keep the URL as first downloaded. */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /** File name → canonical URL of the entry that last claimed it; checked against {@link #entries} on use. */
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+
+    private DownloadManifest(Path file, Duration revalidateAfter) {
+        this.file = file;
+        this.revalidateAfter = revalidateAfter;
+    }
+
+    public static DownloadManifest load(Path downloadDir) {
+        return load(downloadDir, DEFAULT_REVALIDATE_AFTER);
+    }
+
+    /** Loads the manifest if present; an unreadable manifest just means nothing is trusted. */
+    public static DownloadManifest load(Path downloadDir, Duration revalidateAfter) {
+        DownloadManifest manifest = new DownloadManifest(downloadDir.resolve(FILE_NAME), revalidateAfter);
+        manifest.entries.putAll(read(manifest.file));
+        manifest.entries.forEach((key, entry) -> manifest.owners.put(entry.getFileName(), key));
+        return manifest;
+    }
+
+    /** Entries on disk by canonical URL; empty when the file is missing or unreadable. */
+    private static Map<String, Entry> read(Path file) {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry = Entry.parse(line);
+                if (entry != null) {
+                    entries.put(UrlCanonicalizer.canonicalize(entry.getUrl()), entry);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Ignoring unreadable manifest " + file + ": " + e.getMessage());
+            entries.clear();
+        }
+        return entries;
+    }
+
+    public Entry get(String url) {
+        return entries.get(UrlCanonicalizer.canonicalize(url));
+    }
+
+    public void record(Entry entry) {
+        if (entry != null) {
+            String key = UrlCanonicalizer.canonicalize(entry.getUrl());
+            entries.put(key, entry);
+            owners.put(entry.getFileName(), key);
+        }
+    }
+
+    /** True when the file name is recorded for a URL other than this one. */
+    public boolean isOwnedByAnother(String fileName, String url) {
+        String owner = owners.get(fileName);
+        if (owner == null) {
+            return false;
+        }
+        Entry entry = entries.get(owner);
+        return entry != null && entry.getFileName().equals(fileName)
+            && !owner.equals(UrlCanonicalizer.canonicalize(url));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** True when the recorded file is still on disk with the recorded size. */
+    public boolean isPresentOnDisk(Entry entry, Path downloadDir) {
+        try {
+            Path path = downloadDir.resolve(entry.getFileName());
+            return Files.isRegularFile(path) && Files.size(path) == entry.getSize();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public boolean needsRevalidation(Entry entry) {
+        return entry.hasValidators()
+            && System.currentTimeMillis() - entry.getCheckedAt() > revalidateAfter.toMillis();
+    }
+
+    /**
+     * Merges with the manifest on disk and swaps the result in, under the directory's
+     * manifest lock: entries saved by another job since this one loaded are kept, and
+     * for a URL both have the more recently checked entry wins.
+     */
+    public synchronized void save() throws IOException {
+        // A cancelled job still records what it finished; its interrupt would abort the lock and file I/O
+        boolean interrupted = Thread.interrupted();
+        try {
+            merge();
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void merge() throws IOException {
+        try (LockFile lock = LockFile.acquire(file.resolveSibling(FILE_NAME + ".lock"))) {
+            read(file).forEach((key, theirs) -> entries.merge(key, theirs,
+                (mine, other) -> other.getCheckedAt() > mine.getCheckedAt() ? other : mine));
+            entries.forEach((key, entry) -> owners.put(entry.getFileName(), key));
+            Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Entry entry : entries.values()) {
+                    writer.write(entry.format());
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    public static class Entry {
+        private final String url;
+        private final String fileName;
+        private final long size;
+        private final String etag;
+        private final String lastModified;
+        private final long checkedAt;
+
+        public Entry(String url, String fileName, long size, String etag, String lastModified, long checkedAt) {
+            this.url = url;
+            this.fileName = fileName;
+            this.size = size;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.checkedAt = checkedAt;
+        }
+
+        public String getUrl() { return url; }
+        public String getFileName() { return fileName; }
+        public long getSize() { return size; }
+        public String getEtag() { return etag; }
+        public String getLastModified() { return lastModified; }
+        public long getCheckedAt() { return checkedAt; }
+
+        public boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        /** Same file, confirmed unchanged just now (304). */
+        public Entry revalidated() {
+            return new Entry(url, fileName, size, etag, lastModified, System.currentTimeMillis());
+        }
+
+        private String format() {
+            return String.join("\t", url, fileName, Long.toString(size),
+                nullToEmpty(etag), nullToEmpty(lastModified), Long.toString(checkedAt));
+        }
+
+        private static Entry parse(String line) {
+            String[] parts = line.split("\t", -1);
+            if (parts.length != 6) {
+                return null;
+            }
+            try {
+                return new Entry(parts[0], parts[1], Long.parseLong(parts[2]),
+                    emptyToNull(parts[3]), emptyToNull(parts[4]), Long.parseLong(parts[5]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static String nullToEmpty(String s) {
+            return s == null ? "" : s;
+        }
+
+        private static String emptyToNull(String s) {
+            return s.isEmpty() ? null : s;
+        }
+    }
+}
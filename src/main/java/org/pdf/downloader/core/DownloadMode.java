@@ -0,0 +1,19 @@
+package org.pdf.downloader.core;
+
+/**
+ * Transfer engine used by {@link EnhancedDownloadManager}.
+ */
+public enum DownloadMode {
+    /** One pool thread per transfer, blocking reads (supports segmented downloads). */
+    BLOCKING,
+    /** HttpClient.sendAsync with non-blocking file writes; a few threads drive all transfers. */
+    ASYNC;
+
+    /** Lenient parse for request parameters; anything unknown means BLOCKING. */
+    public static DownloadMode from(String value) {
+        if (value != null && value.trim().equalsIgnoreCase("async")) {
+            return ASYNC;
+        }
+        return BLOCKING;
+    }
+}
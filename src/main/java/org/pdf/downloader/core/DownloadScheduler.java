@@ -0,0 +1,353 @@
+package org.pdf.downloader.core;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide worker threads for every download job. Two fixed tiers:
+ * <ul>
+ *   <li>coordination – one thread per running job (scheduling, waiting), plus
+ *       {@code maxDiscovery} discovery threads shared by all jobs: a job's discovery, its
+ *       crawl workers and its link probes run there as tasks;</li>
+ *   <li>transfers – {@code maxInFlight} threads; a global FIFO of slots decides which
+ *       job's transfer runs next, so concurrent jobs share the capacity.</li>
+ * </ul>
+ * Coordinators never take a transfer thread, so jobs waiting on their transfers can't
+ * starve them, and a transfer thread only ever runs a transfer: the number of threads
+ * in the transfer tier is the number of parallel transfers. Async-engine transfers hold
+ * no thread, so they draw on a separate, larger pool of {@code maxAsyncInFlight} slots.
+ * Only a job's discovery queues for a discovery thread; crawl workers and probes are
+ * added with {@link #tryDiscover} when a thread is idle, so discovery never waits on
+ * queued discovery work. No thread is started per job: however many jobs are submitted,
+ * the thread count stays within the sizes of the tiers.
+ * A standalone manager owns a private instance with one coordinator.
+ */
+public class DownloadScheduler implements Closeable {
+
+    /** Async transfers allowed per transfer thread when no explicit async limit is given. */
+    public static final int ASYNC_SLOTS_PER_THREAD = 8;
+    /** Discovery threads per job slot when no explicit discovery limit is given. */
+    public static final int DISCOVERY_THREADS_PER_JOB = 4;
+
+    private final int maxInFlight;
+    private final int maxJobs;
+    private final int maxDiscovery;
+    private final ExecutorService coordinators;
+    private final ExecutorService discoverers;
+    private final ExecutorService transfers;
+    /** Discovery tasks submitted and not finished yet. */
+    private final AtomicInteger discovering = new AtomicInteger();
+    /** Transfers waiting for a global slot, oldest first. */
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+    private int inFlight;
+    /** Non-blocking transfers in flight; they hold no transfer thread. */
+    private final AsyncSlots asyncSlots;
+    private final AtomicInteger jobsRunning = new AtomicInteger();
+
+    public DownloadScheduler(int maxInFlight, int maxJobs) {
+        this(maxInFlight, maxJobs, Math.max(1, maxInFlight) * ASYNC_SLOTS_PER_THREAD);
+    }
+
+    public DownloadScheduler(int maxInFlight, int maxJobs, int maxAsyncInFlight) {
+        this(maxInFlight, maxJobs, maxAsyncInFlight, Math.max(1, maxJobs) * DISCOVERY_THREADS_PER_JOB);
+    }
+
+    public DownloadScheduler(int maxInFlight, int maxJobs, int maxAsyncInFlight, int maxDiscovery) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxJobs = Math.max(1, maxJobs);
+        this.maxDiscovery = Math.max(1, maxDiscovery);
+        this.asyncSlots = new AsyncSlots(maxAsyncInFlight);
+        this.coordinators = Executors.newFixedThreadPool(this.maxJobs, named("pdf-job-coordinator"));
+        this.discoverers = Executors.newFixedThreadPool(this.maxDiscovery, named("pdf-discovery"));
+        this.transfers = Executors.newFixedThreadPool(this.maxInFlight, named("pdf-transfer"));
+    }
+
+    /** Runs a job's coordination on the coordination tier; cancelling the future interrupts it. */
+    public <T> CompletableFuture<T> coordinate(Callable<T> job) {
+        Task<T> task = new Task<>(() -> {
+            jobsRunning.incrementAndGet();
+            try {
+                return job.call();
+            } finally {
+                jobsRunning.decrementAndGet();
+            }
+        });
+        coordinators.execute(task::run);
+        return task;
+    }
+
+    /**
+     * Runs a job's discovery on a discovery thread, waiting in line while all are busy.
+     * Cancelling the future drops it from the queue or interrupts it.
+     */
+    public <T> CompletableFuture<T> discover(Callable<T> work) {
+        discovering.incrementAndGet();
+        return startDiscovery(new Task<>(work));
+    }
+
+    /**
+     * Runs discovery work only if a discovery thread is idle right now; returns null
+     * otherwise and the caller does the work itself. For helpers of running discovery
+     * (crawl workers, probes), which must never wait behind queued work.
+     */
+    public <T> CompletableFuture<T> tryDiscover(Callable<T> work) {
+        int busy;
+        do {
+            busy = discovering.get();
+            if (busy >= maxDiscovery) {
+                return null;
+            }
+        } while (!discovering.compareAndSet(busy, busy + 1));
+        return startDiscovery(new Task<>(work));
+    }
+
+    /**
+     * Runs a blocking transfer on the transfer tier once a global slot is free.
+     * Cancelling the future drops it from the queue or interrupts it.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> transfer) {
+        Task<T> task = new Task<>(transfer);
+        enqueue(() -> start(task), task);
+        return task;
+    }
+
+    /**
+     * Runs a blocking transfer only if a global slot is free right now (nobody queued
+     * ahead); returns null otherwise. For optional extra work such as additional segments
+     * of a transfer that is already running.
+     */
+    public <T> CompletableFuture<T> trySubmit(Callable<T> transfer) {
+        synchronized (this) {
+            if (inFlight >= maxInFlight || !waiting.isEmpty()) {
+                return null;
+            }
+            inFlight++;
+        }
+        Task<T> task = new Task<>(transfer);
+        start(task);
+        return task;
+    }
+
+    /**
+     * Starts a non-blocking transfer once an async slot is free; the slot is held until its
+     * stage completes. Cancelling the future while it waits withdraws it.
+     */
+    public <T> CompletableFuture<T> submitAsync(Supplier<? extends CompletionStage<T>> transfer) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<Void> slot = asyncSlots.acquire();
+        result.whenComplete((value, error) -> slot.cancel(false));
+        slot.thenRun(() -> {
+            if (result.isDone()) {
+                asyncSlots.release(); // cancelled as the slot came free
+                return;
+            }
+            CompletionStage<T> stage;
+            try {
+                stage = transfer.get();
+            } catch (RuntimeException e) {
+                asyncSlots.release();
+                result.completeExceptionally(e);
+                return;
+            }
+            stage.whenComplete((value, error) -> {
+                asyncSlots.release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        });
+        return result;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getMaxAsyncInFlight() {
+        return asyncSlots.capacity();
+    }
+
+    public int getMaxJobs() {
+        return maxJobs;
+    }
+
+    public int getMaxDiscovery() {
+        return maxDiscovery;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    /** Transfers waiting for a global slot. */
+    public synchronized int queueDepth() {
+        return waiting.size();
+    }
+
+    public int jobsRunning() {
+        return jobsRunning.get();
+    }
+
+    public String report() {
+        return "Scheduler: " + inFlight() + "/" + maxInFlight + " transfers in flight, " + queueDepth()
+            + " queued, " + asyncSlots.inUse() + "/" + asyncSlots.capacity() + " async, "
+            + jobsRunning() + "/" + maxJobs + " jobs running, "
+            + Math.min(discovering.get(), maxDiscovery) + "/" + maxDiscovery + " discovery threads busy";
+    }
+
+    /** Lets submitted work finish but accepts no new jobs or transfers. */
+    public void shutdown() {
+        coordinators.shutdown();
+        discoverers.shutdown();
+        transfers.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return coordinators.awaitTermination(timeout, unit)
+            && discoverers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+            && transfers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isShutdown() {
+        return coordinators.isShutdown();
+    }
+
+    public boolean isTerminated() {
+        return coordinators.isTerminated() && discoverers.isTerminated() && transfers.isTerminated();
+    }
+
+    @Override
+    public void close() {
+        coordinators.shutdownNow();
+        discoverers.shutdownNow();
+        transfers.shutdownNow();
+    }
+
+    /** Runs a discovery task counted in {@link #discovering}; the count drops when it ends. */
+    private <T> CompletableFuture<T> startDiscovery(Task<T> task) {
+        try {
+            discoverers.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    discovering.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            discovering.decrementAndGet();
+            task.completeExceptionally(e);
+        }
+        return task;
+    }
+
+    private void enqueue(Runnable start, CompletableFuture<?> handle) {
+        synchronized (this) {
+            if (inFlight >= maxInFlight) {
+                waiting.addLast(() -> {
+                    if (handle.isDone()) {
+                        releaseSlot(); // cancelled while queued
+                    } else {
+                        start.run();
+                    }
+                });
+                return;
+            }
+            inFlight++;
+        }
+        start.run();
+    }
+
+    /** Runs a task holding a slot; a slot guarantees an idle transfer thread (one thread per slot). */
+    private void start(Task<?> task) {
+        try {
+            transfers.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    releaseSlot();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            releaseSlot();
+            task.completeExceptionally(e);
+        }
+    }
+
+    /** Frees a slot and starts the next waiting transfer outside the lock. */
+    private void releaseSlot() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+            // The slot passes straight to the next transfer
+        }
+        next.run();
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /** Future of a blocking call whose cancellation interrupts the thread running it. */
+    private static class Task<T> extends CompletableFuture<T> {
+        private final Callable<T> body;
+        private Thread runner;
+
+        Task(Callable<T> body) {
+            this.body = body;
+        }
+
+        void run() {
+            synchronized (this) {
+                if (isDone()) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                complete(body.call());
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                // Don't leak a cancellation interrupt into the pool thread's next task
+                Thread.interrupted();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            synchronized (this) {
+                if (cancelled && mayInterruptIfRunning && runner != null) {
+                    runner.interrupt();
+                }
+            }
+            return cancelled;
+        }
+    }
+}
@@ -1,31 +1,84 @@
 package org.pdf.downloader.core;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.pdf.downloader.resolver.FileNameResolver;
 import org.pdf.downloader.resolver.AttemptContextResolver;
 import org.pdf.downloader.observer.DownloadObserver;
+import org.pdf.downloader.model.Anchor;
+import org.pdf.downloader.model.CrawlOptions;
 import org.pdf.downloader.model.DownloadTask;
+import org.pdf.downloader.model.PageLinks;
+import org.pdf.downloader.model.SitemapFilter;
+import org.pdf.downloader.model.WatchDelta;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class EnhancedDownloadManager {
+    /** Smallest discovery → download queue; larger jobs get 4 tasks per download slot. */
+    private static final int PIPELINE_MIN_CAPACITY = 16;
     private final MultiThreadedPDFDownloader downloader;
+    private final AsyncPDFDownloader asyncDownloader;
+    /** Which transfer engine executeDownloads uses; BLOCKING unless set before downloadFromUrl. */
+    private volatile DownloadMode mode = DownloadMode.BLOCKING;
+    /** Pooled HTTP client shared by every task of this manager (and by other managers when passed in). */
+    private final HttpTransport transport;
+    /** Shared blob store, also consulted for the sizes of URLs seen before; may be null. */
+    private final ContentStore contentStore;
     private final FileNameResolver nameResolver;
     private final AttemptContextResolver contextResolver;
     private final DownloadObserver observer;
-    private final ExecutorService executorService;
+    /**
+     * Coordination and transfer threads: shared with other jobs, or this manager's own
+     * (one coordinator, maxConcurrentDownloads transfer threads) when none is passed in.
+     */
+    private final DownloadScheduler scheduler;
+    private final boolean ownsScheduler;
+    /** This job's pending and running work, so shutdownNow can cancel just this job. */
+    private final Set<Future<?>> scheduled = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
     private final int maxConcurrentDownloads;
+    /**
+     * Per-host in-flight limit adapted from how each host responds; shared with other jobs
+     * when passed in, otherwise this job's own (between 1 and maxConcurrentDownloads).
+     */
+    private final AdaptiveConcurrencyLimiter limiter;
     /** When true, follows same-host non-PDF links once and downloads PDFs found on those pages (can pull in nav/footer PDFs from the whole site). */
     private final boolean followNestedPages;
+    /** Depth / page / concurrency limits for the nested crawl. */
+    private volatile CrawlOptions crawlOptions = CrawlOptions.defaults();
+    /** CRAWL parses pages; SITEMAP lists documents from robots.txt / sitemaps first. */
+    private volatile DiscoveryMode discoveryMode = DiscoveryMode.CRAWL;
+    private volatile SitemapFilter sitemapFilter = SitemapFilter.none();
+    /** Which transfers start first; FIFO (discovery order) unless set before downloadFromUrl. */
+    private volatile TaskOrder taskOrder = TaskOrder.FIFO;
+    /** Shared page cache; null fetches every page directly. */
+    private volatile PageCache pageCache;
+    /** Shared with other jobs so concurrent jobs download a URL once; null disables sharing. */
+    private volatile InFlightRegistry inFlightRegistry;
+    /** Incremental runs: only links that are new or whose validators changed since the last run transfer bodies. */
+    private volatile boolean watchMode;
+    /** Shared global / per-host budgets; null means only this job's own budget applies. */
+    private volatile BandwidthShaper bandwidthShaper;
+    /** This job's own byte-rate budget, 0 = unlimited; can be changed while the job runs. */
+    private final TokenBucket jobBandwidth = new TokenBucket(0);
+    /**
+     * Shared by both engines so a host that is down fails fast whichever engine runs;
+     * shared with other jobs when passed in, so a later job doesn't probe a dead host again.
+     */
+    private final CircuitBreaker circuitBreaker;
 
     public EnhancedDownloadManager(FileNameResolver nameResolver,
                                  AttemptContextResolver contextResolver,
@@ -39,24 +92,98 @@ public class EnhancedDownloadManager {
                                  DownloadObserver observer,
                                  int maxConcurrentDownloads,
                                  boolean followNestedPages) {
+        this(nameResolver, contextResolver, observer, maxConcurrentDownloads, followNestedPages, new HttpTransport());
+    }
+
+    public EnhancedDownloadManager(FileNameResolver nameResolver,
+                                 AttemptContextResolver contextResolver,
+                                 DownloadObserver observer,
+                                 int maxConcurrentDownloads,
+                                 boolean followNestedPages,
+                                 HttpTransport transport) {
+        this(nameResolver, contextResolver, observer, maxConcurrentDownloads, followNestedPages, transport, null);
+    }
+
+    /**
+     * @param contentStore shared blob store for cross-job dedup; null writes plain files
+     */
+    public EnhancedDownloadManager(FileNameResolver nameResolver,
+                                 AttemptContextResolver contextResolver,
+                                 DownloadObserver observer,
+                                 int maxConcurrentDownloads,
+                                 boolean followNestedPages,
+                                 HttpTransport transport,
+                                 ContentStore contentStore) {
+        this(nameResolver, contextResolver, observer, maxConcurrentDownloads, followNestedPages, transport,
+            contentStore, null);
+    }
+
+    /**
+     * @param scheduler shared worker threads to run this job on; null creates threads for this
+     *                  manager alone. {@code maxConcurrentDownloads} still caps this job's transfers.
+     */
+    public EnhancedDownloadManager(FileNameResolver nameResolver,
+                                 AttemptContextResolver contextResolver,
+                                 DownloadObserver observer,
+                                 int maxConcurrentDownloads,
+                                 boolean followNestedPages,
+                                 HttpTransport transport,
+                                 ContentStore contentStore,
+                                 DownloadScheduler scheduler) {
+        this(nameResolver, contextResolver, observer, maxConcurrentDownloads, followNestedPages, transport,
+            contentStore, scheduler, null, null);
+    }
+
+    /**
+     * @param limiter        per-host concurrency limits shared across jobs; null gives this job its own
+     * @param circuitBreaker per-host circuits shared across jobs; null gives this job its own
+     */
+    public EnhancedDownloadManager(FileNameResolver nameResolver,
+                                 AttemptContextResolver contextResolver,
+                                 DownloadObserver observer,
+                                 int maxConcurrentDownloads,
+                                 boolean followNestedPages,
+                                 HttpTransport transport,
+                                 ContentStore contentStore,
+                                 DownloadScheduler scheduler,
+                                 AdaptiveConcurrencyLimiter limiter,
+                                 CircuitBreaker circuitBreaker) {
         this.nameResolver = nameResolver;
         this.contextResolver = contextResolver;
         this.observer = observer;
         this.maxConcurrentDownloads = maxConcurrentDownloads;
+        this.limiter = limiter != null ? limiter : new AdaptiveConcurrencyLimiter(maxConcurrentDownloads);
+        this.circuitBreaker = circuitBreaker != null ? circuitBreaker : new CircuitBreaker();
         this.followNestedPages = followNestedPages;
-        this.executorService = Executors.newFixedThreadPool(maxConcurrentDownloads);
-        this.downloader = new MultiThreadedPDFDownloader();
+        this.ownsScheduler = scheduler == null;
+        this.scheduler = scheduler != null ? scheduler : new DownloadScheduler(maxConcurrentDownloads, 1);
+        this.transport = transport;
+        this.contentStore = contentStore;
+        this.downloader = new MultiThreadedPDFDownloader(transport, contentStore, this::throttleFor,
+            RetryPolicy.DEFAULT, this.circuitBreaker, new SegmentedDownloader(transport, this.scheduler, this.limiter));
+        this.asyncDownloader = new AsyncPDFDownloader(transport, contentStore, this::throttleFor,
+            RetryPolicy.DEFAULT, this.circuitBreaker);
     }
 
     public CompletableFuture<DownloadResult> downloadFromUrl(String url, String downloadDir) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return performDownload(url, downloadDir);
-            } catch (Exception e) {
-                observer.onError("Download failed: " + e.getMessage());
-                return new DownloadResult(0, 0, Collections.emptyList());
-            }
-        }, executorService);
+        // Coordination waits on transfers, so it runs on its own tier and never holds a transfer thread
+        return track(scheduler.coordinate(() -> runJob(url, downloadDir)));
+    }
+
+    private DownloadResult runJob(String url, String downloadDir) {
+        try {
+            return performDownload(url, downloadDir);
+        } catch (Exception e) {
+            observer.onError("Download failed: " + e.getMessage());
+            return new DownloadResult(0, 0, Collections.emptyList());
+        }
+    }
+
+    /** Remembers this job's scheduled work until it completes. */
+    private <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        scheduled.add(future);
+        future.whenComplete((value, error) -> scheduled.remove(future));
+        return future;
     }
 
     private DownloadResult performDownload(String url, String downloadDir) throws IOException {
@@ -65,119 +192,528 @@ public class EnhancedDownloadManager {
         
         observer.onStart("Connecting to: " + url);
         
-        // Parse webpage
-        Document doc = Jsoup.connect(url)
-            .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
-            .timeout(15000)
-            .get();
-            
-        Elements links = doc.select("a[href]");
+        // Stream the page once for its links and context; no DOM is built
+        PageLinks page = fetchPage(url);
 
         if (!followNestedPages) {
             observer.onStart("PDF discovery: this page only (nested same-host crawl disabled).");
         }
 
-        // Prepare download tasks (optional one-level crawl for nested PDF lists)
-        List<DownloadTask> tasks = prepareTasks(url, links, doc, downloadDir);
-        observer.onTasksIdentified(tasks.size());
-        
-        // Execute downloads concurrently
-        return executeDownloads(tasks);
+        // Discovery and downloads run at the same time: tasks stream through a bounded
+        // queue, the manifest decides locally what is already here as each task is
+        // published, and DNS + connections are warmed for the hosts of tasks that pass
+        // (as many connections per host as the adaptive limiter starts with)
+        DownloadManifest manifest = DownloadManifest.load(Paths.get(downloadDir));
+        ConnectionWarmer warmer = new ConnectionWarmer(transport, maxConcurrentDownloads / 2);
+        WatchRun watch = watchMode ? WatchRun.start(Paths.get(downloadDir), url) : null;
+        AtomicInteger successCount = new AtomicInteger(0);
+        TaskPipeline pipeline = new TaskPipeline(pipelineCapacity(), admission(manifest, watch, warmer, successCount));
+        // Discovery runs on the scheduler's discovery threads; tracked so cancelling the job stops it
+        AtomicBoolean discovering = new AtomicBoolean();
+        track(scheduler.discover(() -> {
+            discovering.set(true);
+            discoverTasks(url, page, downloadDir, pipeline, watch);
+            return null;
+        })).whenComplete((ignored, error) -> {
+            if (!discovering.get()) {
+                pipeline.close(); // cancelled or rejected before it started: nothing will be published
+            }
+        });
+
+        DownloadResult result = executeDownloads(pipeline, manifest, warmer, watch, successCount);
+        observer.onStart(warmer.report());
+        if (pageCache != null) {
+            observer.onStart(pageCache.report());
+        }
+        return result;
     }
 
-    private List<DownloadTask> prepareTasks(String baseUrl, Elements links, Document doc, String downloadDir) {
-        String context = contextResolver.resolveContext(doc);
-        Set<String> seenUrls = new HashSet<>();
-        List<DownloadTask> tasks = new ArrayList<>();
+    /** Discovery → download queue size, also the read-ahead window of a sized order. */
+    private int pipelineCapacity() {
+        return Math.max(PIPELINE_MIN_CAPACITY, maxConcurrentDownloads * 4);
+    }
 
-        // 1) Collect PDFs from the base page
-        collectPdfTasksFromLinks(links, context, downloadDir, seenUrls, tasks);
+    /** Runs on a discovery thread; publishes tasks as they are found and always closes the pipeline. */
+    private void discoverTasks(String baseUrl, PageLinks startPage, String downloadDir,
+                               TaskPipeline pipeline, WatchRun watch) {
+        boolean complete = false;
+        try {
+            complete = prepareTasks(baseUrl, startPage, downloadDir, pipeline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            observer.onError("PDF discovery failed: " + e.getMessage());
+        } finally {
+            if (watch != null && !complete) {
+                watch.discoveryIncomplete();
+            }
+            observer.onTasksIdentified(pipeline.published());
+            pipeline.close();
+        }
+    }
 
-        // 2) Optional: one-step crawl of same-host non-PDF links (adds PDFs from many nav/menu pages)
-        if (!followNestedPages) {
-            return tasks;
+    /** Publishes every task found; returns true when discovery covered everything it was asked to. */
+    private boolean prepareTasks(String baseUrl, PageLinks startPage, String downloadDir,
+                                 TaskPipeline pipeline) throws IOException, InterruptedException {
+        if (discoveryMode == DiscoveryMode.SITEMAP) {
+            if (discoverFromSitemaps(baseUrl, startPage, downloadDir, pipeline)) {
+                return true;
+            }
+            observer.onStart("PDF discovery: no sitemap found, crawling pages instead");
         }
 
-        String baseHost = getHostSafe(baseUrl);
-        Set<String> visitedPages = new HashSet<>();
-        for (Element link : links) {
-            String href = link.absUrl("href");
-            if (href == null || href.isEmpty()) continue;
-            if (isPdfLink(href)) continue; // PDFs already handled
-            if (!isHttp(href)) continue;
-            String host = getHostSafe(href);
-            if (!Objects.equals(baseHost, host)) continue; // stay on same site
-            if (!visitedPages.add(normalizeUrl(href))) continue; // already visited
+        // This page only = a crawl of depth 0
+        CrawlOptions options = followNestedPages ? crawlOptions
+            : new CrawlOptions(0, 0, 1, 1, crawlOptions.getProbeConcurrency());
 
-            try {
-                Document child = Jsoup.connect(href)
-                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
-                    .timeout(15000)
-                    .get();
-                Elements childLinks = child.select("a[href]");
-                String childContext = contextResolver.resolveContext(child);
-                collectPdfTasksFromLinks(childLinks, childContext, downloadDir, seenUrls, tasks);
-            } catch (IOException e) {
-                // Log but continue; child pages are optional
-                observer.onError("Failed to crawl: " + href + " - " + e.getMessage());
+        LinkProber prober = options.isProbeLinks()
+            ? new LinkProber(transport, ProbeCache.open(downloadDir), scheduler, options.getProbeConcurrency()) : null;
+        try {
+            if (options.getMaxDepth() == 0) {
+                // One page: nothing to crawl or resume, so no crawl state on disk
+                String context = contextResolver.resolveContext(startPage.getTitle(), startPage.getHeadings(),
+                    startPage.getMetaContents());
+                Set<String> probed = prober != null ? prober.findDocuments(absoluteUrls(startPage))
+                    : Collections.emptySet();
+                collectPdfTasksFromLinks(startPage, probed, context, downloadDir, null, pipeline);
+                return !Thread.currentThread().isInterrupted();
+            }
+            return crawlTasks(baseUrl, startPage, downloadDir, options, prober, pipeline);
+        } finally {
+            if (prober != null) {
+                observer.onStart(prober.report());
+                prober.close();
             }
         }
+    }
 
-        return tasks;
+    /**
+     * Crawls same-host pages and publishes their PDF links. Crawl state lives on disk in
+     * the download dir: an unfinished crawl of the same page and limits picks up where it
+     * stopped instead of starting over.
+     */
+    private boolean crawlTasks(String baseUrl, PageLinks startPage, String downloadDir, CrawlOptions options,
+                               LinkProber prober, TaskPipeline pipeline) throws IOException, InterruptedException {
+        String crawlKey = UrlCanonicalizer.canonicalize(baseUrl) + " " + options;
+        try (CrawlFrontier frontier = CrawlFrontier.open(downloadDir, crawlKey)) {
+            if (frontier.isResumed()) {
+                observer.onStart("PDF discovery: resuming crawl (" + frontier.queued() + " pages queued before)");
+                // Their names are taken: a PDF first found after the resume must not reuse one
+                frontier.replayTasks(task -> {
+                    nameResolver.reserve(task.getFileName());
+                    return pipeline.publish(task);
+                });
+            }
+            observer.onStart("PDF discovery: crawling same-host pages (" + options + ")");
+
+            // Pages are fetched in parallel; name resolution stays serialized because the
+            // resolvers keep per-job state. Holding the lock while the pipeline is full
+            // pauses the whole crawl (backpressure).
+            Object resolveLock = new Object();
+            // Links a probe found to be PDFs are downloaded, not crawled as pages
+            PageCrawler crawler = new PageCrawler(options, observer, scheduler, this::fetchPage,
+                href -> isPdfLink(href) || prober != null && prober.isKnownDocument(href));
+            boolean complete = crawler.crawl(baseUrl, startPage, frontier, (pageUrl, page, depth) -> {
+                String context = contextResolver.resolveContext(page.getTitle(), page.getHeadings(),
+                    page.getMetaContents());
+                try {
+                    // Probed outside the lock so pages keep probing in parallel
+                    Set<String> probed = prober != null ? prober.findDocuments(absoluteUrls(page)) : Collections.emptySet();
+                    synchronized (resolveLock) {
+                        collectPdfTasksFromLinks(page, probed, context, downloadDir, frontier, pipeline);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            complete = complete && !Thread.currentThread().isInterrupted();
+            if (complete) {
+                frontier.markComplete();
+            }
+            return complete;
+        }
     }
 
-    private void collectPdfTasksFromLinks(Elements links, String context, String downloadDir,
-                                          Set<String> seenUrls, List<DownloadTask> tasks) {
-        for (Element link : links) {
-            String href = link.absUrl("href");
-            if (isPdfLink(href) && seenUrls.add(normalizeUrl(href))) {
-                String fileName = nameResolver.resolveFileName(link, context);
-                tasks.add(new DownloadTask(href, fileName, downloadDir));
+    private PageLinks fetchPage(String url) throws IOException {
+        PageCache cache = pageCache;
+        return cache != null ? cache.fetch(transport, url) : AnchorExtractor.fetch(transport, url);
+    }
+
+    /**
+     * Sitemap fast path: a few requests list the site's documents, each published as it
+     * is parsed. Returns false when the site has no readable sitemap.
+     */
+    private boolean discoverFromSitemaps(String baseUrl, PageLinks startPage, String downloadDir,
+                                         TaskPipeline pipeline) throws InterruptedException {
+        observer.onStart("PDF discovery: reading robots.txt and sitemaps (" + sitemapFilter + ")");
+        String context = contextResolver.resolveContext(startPage.getTitle(), startPage.getHeadings(),
+            startPage.getMetaContents());
+        Set<Long> seen = new HashSet<>();
+        SitemapDiscovery sitemaps = new SitemapDiscovery(transport, observer);
+        int read = sitemaps.discover(baseUrl, sitemapFilter, (url, lastModified) -> {
+            if (!seen.add(UrlCanonicalizer.fingerprint(UrlCanonicalizer.canonicalize(url)))) {
+                return true; // listed in more than one sitemap
             }
+            String fileName = nameResolver.resolveFileName(linkTextOf(url), url, context);
+            return pipeline.publish(new DownloadTask(url, fileName, downloadDir));
+        });
+        observer.onStart(sitemaps.report());
+        return read > 0;
+    }
+
+    /** Sitemap entries have no anchor text; the URL's file name stands in for it. */
+    private static String linkTextOf(String url) {
+        String path = url.replaceFirst("[?#].*$", "");
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        try {
+            name = URLDecoder.decode(name, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            // keep it encoded
         }
+        return name.replaceFirst("(?i)\\.pdf$", "").replaceAll("[-_+]+", " ").trim();
     }
 
-    private DownloadResult executeDownloads(List<DownloadTask> tasks) {
-        AtomicInteger successCount = new AtomicInteger(0);
+    private static List<String> absoluteUrls(PageLinks page) {
+        List<String> urls = new ArrayList<>(page.getAnchors().size());
+        for (Anchor anchor : page.getAnchors()) {
+            urls.add(anchor.getAbsoluteUrl());
+        }
+        return urls;
+    }
+
+    /**
+     * Publishes a task for every new PDF link on the page: .pdf paths plus links the prober
+     * found ({@code probed}). Without a {@code frontier} (a single page) duplicates are
+     * only dropped within the page.
+     */
+    private void collectPdfTasksFromLinks(PageLinks page, Set<String> probed, String context, String downloadDir,
+                                          CrawlFrontier frontier, TaskPipeline pipeline)
+            throws IOException, InterruptedException {
+        Set<Long> seen = frontier == null ? new HashSet<>() : null;
+        for (Anchor anchor : page.getAnchors()) {
+            String href = anchor.getAbsoluteUrl();
+            if (!isPdfLink(href) && !probed.contains(href)) {
+                continue;
+            }
+            String canonical = UrlCanonicalizer.canonicalize(href);
+            if (frontier != null ? frontier.addPdf(canonical) : seen.add(UrlCanonicalizer.fingerprint(canonical))) {
+                String fileName = nameResolver.resolveFileName(anchor, context);
+                DownloadTask task = new DownloadTask(href, fileName, downloadDir);
+                if (frontier != null) {
+                    frontier.recordTask(task);
+                }
+                if (!pipeline.publish(task)) {
+                    return; // downloads were aborted
+                }
+            }
+        }
+    }
+
+    /**
+     * Pre-flight for each published task, run by discovery: decided locally, before a
+     * permit or a connection is taken. Only a task that will be requested warms its host.
+     */
+    private UnaryOperator<DownloadTask> admission(DownloadManifest manifest, WatchRun watch, ConnectionWarmer warmer,
+                                                  AtomicInteger successCount) {
+        return queued -> {
+            DownloadTask task = watch != null ? watchPreflight(queued, manifest, watch) : preflight(queued, manifest);
+            if (task == null) {
+                observer.onTaskSkipped(queued, watch != null ? "unchanged since last run" : "already downloaded");
+                successCount.incrementAndGet();
+            } else {
+                warmer.warm(task.getUrl());
+            }
+            return task;
+        };
+    }
+
+    private DownloadResult executeDownloads(TaskPipeline pipeline, DownloadManifest manifest, ConnectionWarmer warmer,
+                                            WatchRun watch, AtomicInteger successCount) {
         AtomicInteger failureCount = new AtomicInteger(0);
         List<String> errors = Collections.synchronizedList(new ArrayList<>());
-        
-        // Use semaphore to control concurrent downloads
-        Semaphore semaphore = new Semaphore(maxConcurrentDownloads);
-        CountDownLatch latch = new CountDownLatch(tasks.size());
-        
-        for (DownloadTask task : tasks) {
-            CompletableFuture.runAsync(() -> {
+        // One slot per transfer in flight (more on the async engine, which holds no thread
+        // per transfer); taking tasks stops while all are busy, which lets the pipeline
+        // fill up and pause discovery. A task waiting for its host's permit holds no slot,
+        // so a host at its limit doesn't hold up the job's other hosts; those waiting
+        // tasks are bounded separately.
+        AsyncSlots slots = new AsyncSlots(mode == DownloadMode.ASYNC
+            ? maxConcurrentDownloads * DownloadScheduler.ASYNC_SLOTS_PER_THREAD : maxConcurrentDownloads);
+        int maxTaken = slots.capacity() + pipelineCapacity();
+        Semaphore taken = new Semaphore(maxTaken);
+        long started = System.currentTimeMillis();
+        boolean first = true;
+
+        TaskOrder order = taskOrder;
+        TaskSizer sizer = order != TaskOrder.FIFO
+            ? new TaskSizer(transport, circuitBreaker, limiter, manifest, contentStore, maxConcurrentDownloads) : null;
+        OrderedTaskQueue tasks = new OrderedTaskQueue(pipeline, order, sizer, pipelineCapacity());
+
+        try {
+            while (true) {
+                // Free slot first: in a sized order the task is picked when it can actually start
+                slots.awaitFree();
+                taken.acquire();
+                DownloadTask task = tasks.next();
+                if (task == null) {
+                    taken.release();
+                    break;
+                }
+                if (first) {
+                    observer.onStart("⏱️ First download started " + (System.currentTimeMillis() - started)
+                        + " ms after discovery began");
+                    first = false;
+                }
+                warmer.firstUse(task.getUrl());
+                submit(task, manifest, slots, taken, successCount, failureCount, errors);
+            }
+            // Wait for all downloads to complete
+            taken.acquire(maxTaken);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pipeline.abort();
+            observer.onError("Downloads interrupted: unfinished transfers were cancelled");
+        }
+
+        if (sizer != null) {
+            observer.onStart(sizer.report() + " (order " + order + ")");
+        }
+        return finishDownloads(manifest, successCount.get(), failureCount.get(), errors, watch);
+    }
+
+    /**
+     * Schedules one task. When another job is already transferring the same URL the task
+     * joins that transfer and waits for its file instead, holding no connection, host
+     * permit or global slot; it transfers on its own only if that job cancels.
+     */
+    private void submit(DownloadTask task, DownloadManifest manifest, AsyncSlots slots, Semaphore taken,
+                        AtomicInteger successCount, AtomicInteger failureCount, List<String> errors) {
+        schedule(task, manifest, slots, successCount, failureCount, errors)
+            .whenComplete((ignored, error) -> taken.release());
+    }
+
+    private CompletableFuture<Void> schedule(DownloadTask task, DownloadManifest manifest, AsyncSlots slots,
+                                             AtomicInteger successCount, AtomicInteger failureCount,
+                                             List<String> errors) {
+        InFlightRegistry registry = inFlightRegistry;
+        InFlightRegistry.Flight flight = registry != null && !cancelled ? registry.join(task) : null;
+        if (flight == null || flight.isLeader()) {
+            return transfer(task, manifest, slots, flight, successCount, failureCount, errors);
+        }
+        return track(flight.landed()).handle((landed, error) -> {
+            if (error == null) {
                 try {
-                    semaphore.acquire();
                     observer.onTaskStart(task);
-                    
-                    downloader.download(task);
-                    
+                    manifest.record(landed.deliver(task));
                     observer.onTaskComplete(task);
                     successCount.incrementAndGet();
-                    
-                } catch (Exception e) {
-                    observer.onTaskError(task, e);
-                    failureCount.incrementAndGet();
-                    errors.add("Failed to download " + task.getFileName() + ": " + e.getMessage());
-                } finally {
-                    semaphore.release();
-                    latch.countDown();
+                } catch (IOException e) {
+                    fail(task, e, failureCount, errors);
+                }
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof CancellationException) {
+                // The leading job was cancelled (or this one was): start over, leading if nobody else does
+                return cancelled ? CompletableFuture.<Void>completedFuture(null)
+                    : schedule(task, manifest, slots, successCount, failureCount, errors);
+            }
+            observer.onTaskStart(task);
+            fail(task, cause, failureCount, errors);
+            return CompletableFuture.<Void>completedFuture(null);
+        }).thenCompose(next -> next);
+    }
+
+    /**
+     * Transfers one task. The host permit and then the job slot are awaited as futures,
+     * so a task held back by its host's limit occupies neither a transfer thread, nor a
+     * job slot, nor a global slot; only a task that can start right away is handed to
+     * the transfer tier.
+     */
+    private CompletableFuture<Void> transfer(DownloadTask task, DownloadManifest manifest, AsyncSlots slots,
+                                             InFlightRegistry.Flight flight, AtomicInteger successCount,
+                                             AtomicInteger failureCount, List<String> errors) {
+        boolean async = mode == DownloadMode.ASYNC;
+        return track(limiter.acquireAsync(getHostSafe(task.getUrl()))).thenCompose(permit ->
+            track(slots.acquire()).thenCompose(slot -> {
+                CompletableFuture<AdaptiveConcurrencyLimiter.Outcome> transfer;
+                if (cancelled) {
+                    transfer = CompletableFuture.completedFuture(AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+                } else if (async) {
+                    transfer = track(scheduler.submitAsync(
+                        () -> transferAsync(task, manifest, flight, successCount, failureCount, errors)));
+                } else {
+                    transfer = track(scheduler.submit(
+                        () -> transferBlocking(task, manifest, flight, successCount, failureCount, errors)));
                 }
-            }, executorService);
+                return transfer.whenComplete((outcome, error) -> slots.release());
+            }).handle((outcome, error) -> {
+                // Released on completion, so a transfer cancelled before it ran hands its permit back too
+                permit.release(outcome != null ? outcome : AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+                return null;
+            })
+        ).whenComplete((ignored, error) -> {
+            if (flight != null) {
+                flight.abandon();
+            }
+        }).thenApply(ignored -> null);
+    }
+
+    /** Runs on a transfer thread; returns what the transfer says about host load. */
+    private AdaptiveConcurrencyLimiter.Outcome transferBlocking(DownloadTask task, DownloadManifest manifest,
+                                                                InFlightRegistry.Flight flight,
+                                                                AtomicInteger successCount, AtomicInteger failureCount,
+                                                                List<String> errors) {
+        try {
+            observer.onTaskStart(task);
+            
+            DownloadManifest.Entry entry = downloader.download(task);
+            manifest.record(entry);
+            land(flight, task, entry);
+            
+            observer.onTaskComplete(task);
+            successCount.incrementAndGet();
+            return AdaptiveConcurrencyLimiter.Outcome.SUCCESS;
+        } catch (Exception e) {
+            if (flight != null) {
+                flight.fail(e);
+            }
+            fail(task, e, failureCount, errors);
+            return AdaptiveConcurrencyLimiter.classify(e);
         }
-        
+    }
+
+    /** Same as transferBlocking on the non-blocking engine: no thread is held while bytes move. */
+    private CompletableFuture<AdaptiveConcurrencyLimiter.Outcome> transferAsync(DownloadTask task,
+                                                                               DownloadManifest manifest,
+                                                                               InFlightRegistry.Flight flight,
+                                                                               AtomicInteger successCount,
+                                                                               AtomicInteger failureCount,
+                                                                               List<String> errors) {
+        observer.onTaskStart(task);
+        // Tracked so cancelling the job aborts the request in flight
+        return track(asyncDownloader.download(task)).handle((entry, error) -> {
+            if (error == null) {
+                manifest.record(entry);
+                land(flight, task, entry);
+                observer.onTaskComplete(task);
+                successCount.incrementAndGet();
+                return AdaptiveConcurrencyLimiter.Outcome.SUCCESS;
+            }
+            Throwable cause = unwrap(error);
+            if (flight != null) {
+                flight.fail(cause);
+            }
+            fail(task, cause, failureCount, errors);
+            return AdaptiveConcurrencyLimiter.classify(cause);
+        });
+    }
+
+    private static void land(InFlightRegistry.Flight flight, DownloadTask task, DownloadManifest.Entry entry) {
+        if (flight != null) {
+            flight.land(Paths.get(task.getDownloadDir(), task.getFileName()), entry);
+        }
+    }
+
+    private void fail(DownloadTask task, Throwable cause, AtomicInteger failureCount, List<String> errors) {
+        if (cause instanceof CancellationException && cause.getMessage() == null) {
+            cause = new CancellationException("Download cancelled");
+        }
+        observer.onTaskError(task, cause instanceof Exception ? (Exception) cause : new Exception(cause));
+        failureCount.incrementAndGet();
+        errors.add("Failed to download " + task.getFileName() + ": " + cause.getMessage());
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private DownloadResult finishDownloads(DownloadManifest manifest, int successCount, int failureCount,
+                                           List<String> errors, WatchRun watch) {
         try {
-            // Wait for all downloads to complete
-            latch.await();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            observer.onError("Downloads interrupted: " + e.getMessage());
+            manifest.save();
+        } catch (IOException e) {
+            observer.onError("Failed to save download manifest: " + e.getMessage());
         }
         
-        observer.onComplete(successCount.get());
-        return new DownloadResult(successCount.get(), failureCount.get(), errors);
+        observer.onStart("Per-host concurrency limits: " + limiter.currentLimits());
+        circuitBreaker.states().forEach((host, state) -> {
+            if (state != CircuitBreaker.State.CLOSED) {
+                observer.onError("Circuit " + state + " for " + host + " - its remaining tasks failed fast");
+            }
+        });
+        WatchDelta delta = null;
+        if (watch != null) {
+            try {
+                delta = watch.finish(manifest);
+                observer.onStart("🔁 Changes since last run: " + delta);
+            } catch (IOException e) {
+                observer.onError("Failed to save watch state: " + e.getMessage());
+            }
+        }
+        observer.onComplete(successCount);
+        return new DownloadResult(successCount, failureCount, errors, delta);
+    }
+
+    /**
+     * Watch-mode scheduling: a known file that is still on disk is always checked with a
+     * conditional GET (a 304 costs one small round trip, a 200 means it changed); one
+     * without validators can't be checked cheaply and is kept. New links go through
+     * {@link #preflight} as usual.
+     */
+    private DownloadTask watchPreflight(DownloadTask task, DownloadManifest manifest, WatchRun watch) {
+        DownloadManifest.Entry entry = manifest.get(task.getUrl());
+        DownloadTask next;
+        if (entry != null && manifest.isPresentOnDisk(entry, Paths.get(task.getDownloadDir()))) {
+            next = entry.hasValidators()
+                ? task.conditional(entry.getFileName(), entry.getEtag(), entry.getLastModified()) : null;
+        } else {
+            next = preflight(task, manifest);
+        }
+        watch.discovered(task.getUrl(), entry, next != null);
+        return next;
+    }
+
+    /**
+     * Local-only scheduling check. Returns null when the file is on disk and recent enough
+     * to trust (zero network), a conditional task when it is due for revalidation, or the
+     * task unchanged when it has to be downloaded.
+     */
+    private DownloadTask preflight(DownloadTask task, DownloadManifest manifest) {
+        Path dir = Paths.get(task.getDownloadDir());
+        DownloadManifest.Entry entry = manifest.get(task.getUrl());
+        if (entry != null && manifest.isPresentOnDisk(entry, dir)) {
+            if (!manifest.needsRevalidation(entry)) {
+                return null;
+            }
+            return task.conditional(entry.getFileName(), entry.getEtag(), entry.getLastModified());
+        }
+
+        // The name is another URL's file: don't adopt it or overwrite it
+        if (manifest.isOwnedByAnother(task.getFileName(), task.getUrl())) {
+            return task.renamed(disambiguate(task.getFileName(), task.getUrl()));
+        }
+
+        // File from a run before the manifest existed: keep it, and remember it from now on
+        Path target = dir.resolve(task.getFileName());
+        try {
+            if (entry == null && Files.isRegularFile(target) && Files.size(target) > 0) {
+                manifest.record(new DownloadManifest.Entry(task.getUrl(), task.getFileName(),
+                    Files.size(target), null, null, System.currentTimeMillis()));
+                return null;
+            }
+        } catch (IOException e) {
+            // Fall through and download it
+        }
+        return task;
+    }
+
+    /** Stable per-URL variant of a file name, so later runs find the file under the same name. */
+    private static String disambiguate(String fileName, String url) {
+        String suffix = String.format("_%08x", (int) UrlCanonicalizer.fingerprint(UrlCanonicalizer.canonicalize(url)));
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) + suffix + fileName.substring(dot) : fileName + suffix;
     }
 
     private void setupDownloadDirectory(String downloadDir) throws IOException {
@@ -196,12 +732,7 @@ public class EnhancedDownloadManager {
     }
 
     private boolean isPdfLink(String url) {
-        return url.toLowerCase().endsWith(".pdf");
-    }
-
-    private boolean isHttp(String url) {
-        String u = url.toLowerCase();
-        return u.startsWith("http://") || u.startsWith("https://");
+        return UrlCanonicalizer.hasPdfPath(url);
     }
 
     private String getHostSafe(String url) {
@@ -212,21 +743,103 @@ public class EnhancedDownloadManager {
         }
     }
 
-    private String normalizeUrl(String url) {
-        // Basic normalization to avoid trivial duplicates
-        if (url == null) return "";
-        String u = url.trim();
-        if (u.endsWith("/")) u = u.substring(0, u.length() - 1);
-        return u;
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+    public void setCrawlOptions(CrawlOptions crawlOptions) {
+        this.crawlOptions = crawlOptions != null ? crawlOptions : CrawlOptions.defaults();
+    }
+
+    public CrawlOptions getCrawlOptions() {
+        return crawlOptions;
+    }
+
+    public void setPageCache(PageCache pageCache) {
+        this.pageCache = pageCache;
+    }
+
+    public void setInFlightRegistry(InFlightRegistry inFlightRegistry) {
+        this.inFlightRegistry = inFlightRegistry;
+    }
+
+    public void setWatchMode(boolean watchMode) {
+        this.watchMode = watchMode;
+    }
+
+    public boolean isWatchMode() {
+        return watchMode;
+    }
+
+    public void setTaskOrder(TaskOrder taskOrder) {
+        this.taskOrder = taskOrder != null ? taskOrder : TaskOrder.FIFO;
+    }
+
+    public TaskOrder getTaskOrder() {
+        return taskOrder;
+    }
+
+    public void setDiscoveryMode(DiscoveryMode discoveryMode) {
+        this.discoveryMode = discoveryMode != null ? discoveryMode : DiscoveryMode.CRAWL;
+    }
+
+    public DiscoveryMode getDiscoveryMode() {
+        return discoveryMode;
+    }
+
+    /** URL pattern / lastmod filter for sitemap entries (SITEMAP discovery only). */
+    public void setSitemapFilter(SitemapFilter sitemapFilter) {
+        this.sitemapFilter = sitemapFilter != null ? sitemapFilter : SitemapFilter.none();
+    }
+
+    public SitemapFilter getSitemapFilter() {
+        return sitemapFilter;
+    }
+
+    public void setMode(DownloadMode mode) {
+        this.mode = mode != null ? mode : DownloadMode.BLOCKING;
+    }
+
+    public DownloadMode getMode() {
+        return mode;
+    }
+
+    public void setBandwidthShaper(BandwidthShaper bandwidthShaper) {
+        this.bandwidthShaper = bandwidthShaper;
+    }
+
+    /** Caps this job at {@code bytesPerSecond} (0 = unlimited); applies to transfers already running. */
+    public void setJobBandwidth(long bytesPerSecond) {
+        jobBandwidth.setRate(bytesPerSecond);
+    }
+
+    public long getJobBandwidth() {
+        return jobBandwidth.getRate();
+    }
+
+    private Throttle throttleFor(String host) {
+        BandwidthShaper shaper = bandwidthShaper;
+        return shaper != null ? shaper.throttle(host, jobBandwidth) : jobBandwidth;
+    }
+
+    /** Circuit state per host (OPEN = failing fast). */
+    public Map<String, CircuitBreaker.State> getCircuitStates() {
+        return circuitBreaker.states();
+    }
+
+    /** Current adaptive concurrency limit per host. */
+    public Map<String, Integer> getHostLimits() {
+        return limiter.currentLimits();
     }
 
     /**
      * Graceful shutdown of executor service
      */
     public void shutdown() {
-        if (executorService != null && !executorService.isShutdown()) {
+        // Shared scheduler threads belong to the process, not to this job
+        if (ownsScheduler && !scheduler.isShutdown()) {
             System.out.println("🔄 Shutting down executor service...");
-            executorService.shutdown();
+            scheduler.shutdown();
         }
     }
     
@@ -234,18 +847,21 @@ public class EnhancedDownloadManager {
      * Wait for executor service termination
      */
     public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
-        if (executorService != null) {
-            return executorService.awaitTermination(timeout, unit);
+        if (ownsScheduler) {
+            return scheduler.awaitTermination(timeout, unit);
         }
         return true;
     }
     
     /**
-     * Force immediate shutdown of executor service
+     * Cancels (and interrupts) this job's pending and running work; an own scheduler is
+     * stopped too. Nothing is handed back: unstarted work is simply dropped.
      */
     public List<Runnable> shutdownNow() {
-        if (executorService != null) {
-            return executorService.shutdownNow();
+        cancelled = true;
+        scheduled.forEach(future -> future.cancel(true));
+        if (ownsScheduler) {
+            scheduler.close();
         }
         return new ArrayList<>();
     }
@@ -254,8 +870,8 @@ public class EnhancedDownloadManager {
      * Check if executor service is terminated
      */
     public boolean isTerminated() {
-        if (executorService != null) {
-            return executorService.isTerminated();
+        if (ownsScheduler) {
+            return scheduler.isTerminated();
         }
         return true;
     }
@@ -264,8 +880,8 @@ public class EnhancedDownloadManager {
      * Check if executor service is shutdown
      */
     public boolean isShutdown() {
-        if (executorService != null) {
-            return executorService.isShutdown();
+        if (ownsScheduler) {
+            return scheduler.isShutdown();
         }
         return true;
     }
@@ -275,16 +891,24 @@ public class EnhancedDownloadManager {
         private final int successCount;
         private final int failureCount;
         private final List<String> errors;
+        private final WatchDelta delta;
 
         public DownloadResult(int successCount, int failureCount, List<String> errors) {
+            this(successCount, failureCount, errors, null);
+        }
+
+        public DownloadResult(int successCount, int failureCount, List<String> errors, WatchDelta delta) {
             this.successCount = successCount;
             this.failureCount = failureCount;
             this.errors = new ArrayList<>(errors);
+            this.delta = delta;
         }
 
         public int getSuccessCount() { return successCount; }
         public int getFailureCount() { return failureCount; }
         public List<String> getErrors() { return new ArrayList<>(errors); }
         public int getTotalAttempted() { return successCount + failureCount; }
+        /** Watch runs only: what changed since the previous run; null otherwise. */
+        public WatchDelta getDelta() { return delta; }
     }
 }
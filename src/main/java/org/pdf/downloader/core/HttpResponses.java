@@ -0,0 +1,83 @@
+package org.pdf.downloader.core;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Status and header checks shared by the blocking and async download engines.
+ */
+public final class HttpResponses {
+
+    public static final int HTTP_PARTIAL_CONTENT = 206;
+    public static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private HttpResponses() {
+    }
+
+    /** Throws unless the status is 200 or 206. */
+    public static void check(int responseCode, HttpHeaders headers, URI uri) throws HttpStatusException {
+        if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) {
+            throw new HttpStatusException("File not found (404): " + uri, responseCode, -1);
+        } else if (responseCode == HttpURLConnection.HTTP_FORBIDDEN) {
+            throw new HttpStatusException("Access forbidden (403): " + uri, responseCode, -1);
+        } else if (responseCode == HttpURLConnection.HTTP_UNAVAILABLE) {
+            throw new HttpStatusException("Service unavailable (503): " + uri, responseCode, retryAfterMillis(headers));
+        } else if (responseCode == HTTP_TOO_MANY_REQUESTS) {
+            throw new HttpStatusException("Too many requests (429): " + uri, responseCode, retryAfterMillis(headers));
+        } else if (responseCode != HttpURLConnection.HTTP_OK && responseCode != HTTP_PARTIAL_CONTENT) {
+            throw new HttpStatusException("HTTP " + responseCode + ": " + uri, responseCode, -1);
+        }
+    }
+
+    /** Start offset from "Content-Range: bytes start-end/total", or -1 when absent. */
+    public static long rangeStart(HttpHeaders headers) {
+        String range = headers.firstValue("Content-Range").orElse("");
+        int space = range.indexOf(' ');
+        int dash = range.indexOf('-');
+        if (space < 0 || dash < space) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(range.substring(space + 1, dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Total length from the "/total" suffix of Content-Range, or -1 when unknown. */
+    public static long totalLength(HttpHeaders headers) {
+        String range = headers.firstValue("Content-Range").orElse("");
+        int slash = range.lastIndexOf('/');
+        if (slash < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(range.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Retry-After as delta-seconds or HTTP-date, in milliseconds; -1 when absent or unparseable. */
+    public static long retryAfterMillis(HttpHeaders headers) {
+        String value = headers.firstValue("Retry-After").orElse(null);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException ex) {
+                return -1;
+            }
+        }
+    }
+}
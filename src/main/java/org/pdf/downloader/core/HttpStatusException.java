@@ -0,0 +1,32 @@
+package org.pdf.downloader.core;
+
+import java.io.IOException;
+
+/**
+ * Non-success HTTP status from the origin. Keeps the code (and any Retry-After delay)
+ * so callers can tell throttling (429/503) apart from failures that won't go away.
+ */
+public class HttpStatusException extends IOException {
+    private final int statusCode;
+    /** Retry-After in milliseconds, or -1 when the response didn't send one. */
+    private final long retryAfterMillis;
+
+    public HttpStatusException(String message, int statusCode, long retryAfterMillis) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /** 429 Too Many Requests / 503 Service Unavailable: the host is asking us to slow down. */
+    public boolean isThrottling() {
+        return statusCode == 429 || statusCode == 503;
+    }
+}
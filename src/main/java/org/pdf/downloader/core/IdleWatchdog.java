@@ -0,0 +1,133 @@
+package org.pdf.downloader.core;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Idle-read deadline for a response body. {@code HttpRequest.timeout} only bounds the
+ * wait for the headers, so a server that stalls mid-body would hold a transfer (and its
+ * slot) forever. The reader marks when it starts waiting for data and when data arrives;
+ * a shared timer runs {@code onStall} once it has waited longer than the idle timeout
+ * (closing the body or cancelling the subscription unblocks the reader). Time spent
+ * throttled or writing doesn't count, only time waiting on the server.
+ */
+public class IdleWatchdog {
+
+    /** One timer thread for every watched body in the process. */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "pdf-read-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final long MIN_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final long idleNanos;
+    private final Runnable onStall;
+    private final ScheduledFuture<?> check;
+    /** When the reader started waiting for data, 0 while it isn't waiting. */
+    private volatile long waitingSince;
+    private volatile boolean stalled;
+
+    public IdleWatchdog(Duration idle, Runnable onStall) {
+        this.idleNanos = Math.max(1, idle.toNanos());
+        this.onStall = onStall;
+        long period = Math.max(MIN_CHECK_NANOS, idleNanos / 10);
+        this.check = TIMER.scheduleWithFixedDelay(this::check, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /** Wraps a blocking body so a read that waits longer than {@code idle} fails with {@link HttpTimeoutException}. */
+    public static InputStream guard(InputStream body, Duration idle) {
+        return new GuardedInputStream(body, idle);
+    }
+
+    /** The reader is now waiting for the next bytes. */
+    public void waiting() {
+        waitingSince = System.nanoTime();
+    }
+
+    /** Data arrived (or the reader stopped waiting). */
+    public void progressed() {
+        waitingSince = 0;
+    }
+
+    public boolean isStalled() {
+        return stalled;
+    }
+
+    public HttpTimeoutException timeout() {
+        return new HttpTimeoutException("No data received for " + TimeUnit.NANOSECONDS.toSeconds(idleNanos) + " s");
+    }
+
+    public void stop() {
+        check.cancel(false);
+    }
+
+    private void check() {
+        long since = waitingSince;
+        if (since != 0 && System.nanoTime() - since >= idleNanos && !stalled) {
+            stalled = true;
+            stop();
+            onStall.run();
+        }
+    }
+
+    /** Blocking body that is closed from the timer when a read waits too long. */
+    private static class GuardedInputStream extends FilterInputStream {
+        private final IdleWatchdog watchdog;
+
+        GuardedInputStream(InputStream in, Duration idle) {
+            super(in);
+            this.watchdog = new IdleWatchdog(idle, () -> {
+                try {
+                    in.close(); // wakes a reader blocked on the next chunk
+                } catch (IOException ignored) {
+                    // The read fails either way
+                }
+            });
+        }
+
+        @Override
+        public int read() throws IOException {
+            watchdog.waiting();
+            try {
+                return ended(super.read());
+            } catch (IOException e) {
+                throw watchdog.isStalled() ? watchdog.timeout() : e;
+            } finally {
+                watchdog.progressed();
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            watchdog.waiting();
+            try {
+                return ended(super.read(buffer, offset, length));
+            } catch (IOException e) {
+                throw watchdog.isStalled() ? watchdog.timeout() : e;
+            } finally {
+                watchdog.progressed();
+            }
+        }
+
+        private int ended(int result) {
+            if (result < 0) {
+                watchdog.stop();
+            }
+            return result;
+        }
+
+        @Override
+        public void close() throws IOException {
+            watchdog.stop();
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.pdf.downloader.core;
+
+import org.pdf.downloader.model.DownloadTask;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide single-flight table of PDF transfers, keyed by canonical URL. The first
+ * job to schedule a URL leads and downloads it; any other job scheduling the same URL
+ * while that transfer is queued or running follows: it opens no connection, waits for
+ * the leader's file and links it (copy when linking isn't possible) into its own
+ * directory. A follower whose leader was cancelled is told so and transfers itself.
+ */
+public class InFlightRegistry {
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong led = new AtomicLong();
+    private final AtomicLong followed = new AtomicLong();
+    private final AtomicLong bytesShared = new AtomicLong();
+
+    /** Leads the task's URL when nothing is in flight for it, otherwise follows the running transfer. */
+    public Flight join(DownloadTask task) {
+        String key = UrlCanonicalizer.canonicalize(task.getUrl());
+        Flight mine = new Flight(key, new CompletableFuture<>(), true);
+        Flight running = flights.putIfAbsent(key, mine);
+        if (running == null) {
+            led.incrementAndGet();
+            return mine;
+        }
+        followed.incrementAndGet();
+        return new Flight(key, running.landed, false);
+    }
+
+    public int inFlight() {
+        return flights.size();
+    }
+
+    public String report() {
+        return "In-flight sharing: " + led.get() + " transfers led, " + followed.get() + " joined another job's transfer ("
+            + bytesShared.get() / 1024 + " KB not downloaded again)";
+    }
+
+    /** One job's handle on a URL's transfer. */
+    public class Flight {
+        private final String key;
+        private final CompletableFuture<Landed> landed;
+        private final boolean leader;
+
+        private Flight(String key, CompletableFuture<Landed> landed, boolean leader) {
+            this.key = key;
+            this.landed = landed;
+            this.leader = leader;
+        }
+
+        public boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * The leader's finished file. Fails with {@link CancellationException} when the leader
+         * gave up without a result; cancelling the returned future leaves the transfer running.
+         */
+        public CompletableFuture<Landed> landed() {
+            return landed.copy();
+        }
+
+        /** Leader only: the file is complete at {@code file}. */
+        public void land(Path file, DownloadManifest.Entry entry) {
+            if (leader) {
+                flights.remove(key, this);
+                landed.complete(new Landed(file, entry));
+            }
+        }
+
+        /** Leader only: the transfer failed; followers get the same error. */
+        public void fail(Throwable error) {
+            if (leader) {
+                flights.remove(key, this);
+                landed.completeExceptionally(error);
+            }
+        }
+
+        /** Leader only: the transfer ended without landing or failing (cancelled); no-op after either. */
+        public void abandon() {
+            fail(new CancellationException("Transfer cancelled by the job that started it"));
+        }
+    }
+
+    /** A finished transfer: where the leader put the file and what it recorded about it. */
+    public class Landed {
+        private final Path file;
+        private final DownloadManifest.Entry entry;
+
+        private Landed(Path file, DownloadManifest.Entry entry) {
+            this.file = file;
+            this.entry = entry;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public DownloadManifest.Entry getEntry() {
+            return entry;
+        }
+
+        /** Links the leader's file into place as the task's target and returns the task's manifest entry. */
+        public DownloadManifest.Entry deliver(DownloadTask task) throws IOException {
+            Path target = Paths.get(task.getDownloadDir(), task.getFileName());
+            if (!Files.isSameFile(file.getParent(), target.getParent()) || !file.getFileName().equals(target.getFileName())) {
+                ContentStore.linkOrCopy(file, target);
+            }
+            bytesShared.addAndGet(entry.getSize());
+            return new DownloadManifest.Entry(task.getUrl(), task.getFileName(), entry.getSize(),
+                entry.getEtag(), entry.getLastModified(), entry.getCheckedAt());
+        }
+    }
+}
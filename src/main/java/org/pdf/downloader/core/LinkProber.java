@@ -0,0 +1,256 @@
+package org.pdf.downloader.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional discovery stage for links that don't end in .pdf ({@code download.aspx?id=…},
+ * redirectors): each candidate gets a HEAD request, classified by Content-Type,
+ * Content-Disposition filename and the final URL after redirects. Servers that reject
+ * HEAD or don't say what they serve get a one-byte-range GET instead, decided by the
+ * PDF magic of the first bytes; the rest of the body is never read. The calling thread
+ * probes, helped by up to {@code concurrency} minus one idle discovery threads of the
+ * shared scheduler, and answers go into the {@link ProbeCache}.
+ */
+public class LinkProber implements Closeable {
+
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(10);
+    private static final byte[] PDF_MAGIC = {'%', 'P', 'D', 'F'};
+    /** Extensions that are never a PDF behind the scenes; not worth a request. */
+    private static final Set<String> SKIPPED_EXTENSIONS = Set.of("html", "htm", "shtml", "xhtml", "css", "js",
+        "png", "jpg", "jpeg", "gif", "svg", "webp", "ico", "mp3", "mp4", "avi", "zip", "rar", "txt", "xml",
+        "json", "doc", "docx", "xls", "xlsx", "ppt", "pptx");
+
+    private enum Verdict { PDF, OTHER, UNKNOWN }
+
+    private final HttpTransport transport;
+    private final ProbeCache cache;
+    private final DownloadScheduler scheduler;
+    private final int concurrency;
+    private final AtomicInteger probed = new AtomicInteger();
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private final AtomicInteger found = new AtomicInteger();
+
+    public LinkProber(HttpTransport transport, ProbeCache cache, DownloadScheduler scheduler, int concurrency) {
+        this.transport = transport;
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /** Whether {@code url} is worth probing: http(s), no .pdf path, no known non-PDF extension. */
+    public static boolean isCandidate(String url) {
+        String lower = url.toLowerCase(Locale.ROOT);
+        if (!(lower.startsWith("http://") || lower.startsWith("https://")) || UrlCanonicalizer.hasPdfPath(url)) {
+            return false;
+        }
+        String path;
+        try {
+            path = URI.create(url).getPath();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (path == null) {
+            return true;
+        }
+        String segment = path.substring(path.lastIndexOf('/') + 1);
+        int dot = segment.lastIndexOf('.');
+        return dot < 0 || !SKIPPED_EXTENSIONS.contains(segment.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /** True when an earlier probe found {@code url} to be a PDF (used to keep it out of the page crawl). */
+    public boolean isKnownDocument(String url) {
+        return Boolean.TRUE.equals(cache.get(UrlCanonicalizer.canonicalize(url)));
+    }
+
+    /**
+     * Classifies the candidates among {@code urls} in parallel and returns those that
+     * serve a PDF. Cached answers cost no request; a failed probe counts as "not a PDF"
+     * for this run and isn't cached.
+     */
+    public Set<String> findDocuments(Collection<String> urls) throws InterruptedException {
+        Map<String, String> pending = new LinkedHashMap<>();
+        Set<String> documents = new LinkedHashSet<>();
+        for (String url : urls) {
+            if (!isCandidate(url) || pending.containsKey(url) || documents.contains(url)) {
+                continue;
+            }
+            String canonical = UrlCanonicalizer.canonicalize(url);
+            Boolean known = cache.get(canonical);
+            if (known != null) {
+                cacheHits.incrementAndGet();
+                if (known) {
+                    documents.add(url);
+                }
+                continue;
+            }
+            pending.put(url, canonical);
+        }
+        if (!pending.isEmpty()) {
+            Set<String> pdfs = probeAll(pending);
+            for (String url : pending.keySet()) {
+                if (pdfs.contains(url)) {
+                    documents.add(url);
+                }
+            }
+        }
+        found.addAndGet(documents.size());
+        try {
+            cache.flush();
+        } catch (IOException e) {
+            // Cache is an optimisation; the answers are still used for this run
+        }
+        return documents;
+    }
+
+    public String report() {
+        return "Link probing: " + probed.get() + " probed, " + cacheHits.get() + " answered from cache, "
+            + found.get() + " extensionless PDF links";
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.close();
+    }
+
+    /** Probes {@code pending} (url → canonical form) on this thread and on idle discovery threads. */
+    private Set<String> probeAll(Map<String, String> pending) throws InterruptedException {
+        Queue<Map.Entry<String, String>> queue = new ConcurrentLinkedQueue<>(pending.entrySet());
+        Set<String> pdfs = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> helpers = new ArrayList<>();
+        try {
+            for (int i = 1; i < Math.min(concurrency, pending.size()); i++) {
+                CompletableFuture<Void> helper = scheduler.tryDiscover(() -> {
+                    drain(queue, pdfs);
+                    return null;
+                });
+                if (helper == null) {
+                    break;
+                }
+                helpers.add(helper);
+            }
+            drain(queue, pdfs);
+            for (CompletableFuture<Void> helper : helpers) {
+                try {
+                    helper.get();
+                } catch (ExecutionException e) {
+                    // Only an interrupted helper fails; what it left is simply not a PDF this run
+                }
+            }
+        } finally {
+            helpers.forEach(helper -> helper.cancel(true));
+        }
+        return pdfs;
+    }
+
+    private void drain(Queue<Map.Entry<String, String>> queue, Set<String> pdfs) throws InterruptedException {
+        Map.Entry<String, String> next;
+        while ((next = queue.poll()) != null) {
+            try {
+                if (probe(next.getKey(), next.getValue())) {
+                    pdfs.add(next.getKey());
+                }
+            } catch (IOException | RuntimeException e) {
+                // Unreachable or server error: not a PDF for this run, asked again next time
+            }
+        }
+    }
+
+    private boolean probe(String url, String canonical) throws IOException, InterruptedException {
+        probed.incrementAndGet();
+        HttpRequest head = transport.newRequest(url)
+            .method("HEAD", HttpRequest.BodyPublishers.noBody())
+            .timeout(PROBE_TIMEOUT)
+            .build();
+        HttpResponse<Void> response = transport.client().send(head, HttpResponse.BodyHandlers.discarding());
+        int status = response.statusCode();
+        Verdict verdict;
+        if (status / 100 == 2) {
+            verdict = classify(response.headers(), response.uri());
+            if (verdict == Verdict.UNKNOWN) {
+                verdict = rangedGet(url);
+            }
+        } else if (status == HttpURLConnection.HTTP_BAD_METHOD || status == HttpURLConnection.HTTP_NOT_IMPLEMENTED
+                || status == HttpURLConnection.HTTP_FORBIDDEN) {
+            // HEAD not allowed (some download handlers only answer GET)
+            verdict = rangedGet(url);
+        } else if (status / 100 == 4 && status != 408 && status != 429) {
+            verdict = Verdict.OTHER;
+        } else {
+            throw new HttpStatusException("HTTP " + status + " probing " + url, status,
+                HttpResponses.retryAfterMillis(response.headers()));
+        }
+        boolean pdf = verdict == Verdict.PDF;
+        cache.put(canonical, pdf);
+        return pdf;
+    }
+
+    /** GET of the first bytes only; the stream is closed after the magic check. */
+    private Verdict rangedGet(String url) throws IOException, InterruptedException {
+        HttpRequest get = transport.newRequest(url)
+            .header("Range", "bytes=0-" + (PDF_MAGIC.length - 1))
+            .timeout(PROBE_TIMEOUT)
+            .GET()
+            .build();
+        HttpResponse<InputStream> response = transport.client().send(get, transport.streamingBody());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() / 100 != 2) {
+                return Verdict.OTHER;
+            }
+            Verdict verdict = classify(response.headers(), response.uri());
+            if (verdict != Verdict.UNKNOWN) {
+                return verdict;
+            }
+            // Server ignoring Range sends the whole body: only the first bytes are read
+            byte[] header = body.readNBytes(PDF_MAGIC.length);
+            for (int i = 0; i < PDF_MAGIC.length; i++) {
+                if (i >= header.length || header[i] != PDF_MAGIC[i]) {
+                    return Verdict.OTHER;
+                }
+            }
+            return Verdict.PDF;
+        }
+    }
+
+    private static Verdict classify(HttpHeaders headers, URI finalUri) {
+        String disposition = headers.firstValue("Content-Disposition").orElse("").toLowerCase(Locale.ROOT);
+        if (disposition.matches("(?s).*filename\\*?=[^;]*\\.pdf\"?\\s*(;.*)?")) {
+            return Verdict.PDF;
+        }
+        if (finalUri != null && UrlCanonicalizer.hasPdfPath(finalUri.toString())) {
+            return Verdict.PDF;
+        }
+        String type = headers.firstValue("Content-Type").orElse("").toLowerCase(Locale.ROOT);
+        int semicolon = type.indexOf(';');
+        type = (semicolon >= 0 ? type.substring(0, semicolon) : type).trim();
+        if (type.equals("application/pdf") || type.equals("application/x-pdf")) {
+            return Verdict.PDF;
+        }
+        if (type.isEmpty() || type.equals("application/octet-stream") || type.equals("binary/octet-stream")
+                || type.equals("application/force-download") || type.equals("application/download")) {
+            return Verdict.UNKNOWN;
+        }
+        return Verdict.OTHER;
+    }
+}
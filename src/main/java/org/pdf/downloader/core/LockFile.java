@@ -0,0 +1,88 @@
+package org.pdf.downloader.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Exclusive lock on a lock file, held against other jobs in this process and against
+ * other processes. A {@link FileLock} alone isn't enough: the JVM refuses to lock the
+ * same file twice, so jobs in one server first take a per-path permit here. The permit
+ * has no owner thread, so a lock may be released from a different thread than the one
+ * that took it.
+ */
+public class LockFile implements Closeable {
+
+    private static final Map<Path, Semaphore> LOCAL = new ConcurrentHashMap<>();
+
+    private final Semaphore local;
+    private final FileChannel channel;
+    private final FileLock lock;
+
+    private LockFile(Semaphore local, FileChannel channel, FileLock lock) {
+        this.local = local;
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /** Waits until the lock is free. */
+    public static LockFile acquire(Path path) throws IOException {
+        Semaphore local = local(path);
+        try {
+            local.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for lock " + path, e);
+        }
+        return lock(path, local, true);
+    }
+
+    /** The lock if it is free right now, otherwise null. */
+    public static LockFile tryAcquire(Path path) throws IOException {
+        Semaphore local = local(path);
+        if (!local.tryAcquire()) {
+            return null;
+        }
+        return lock(path, local, false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            lock.release();
+            channel.close();
+        } finally {
+            local.release();
+        }
+    }
+
+    private static Semaphore local(Path path) {
+        return LOCAL.computeIfAbsent(path.toAbsolutePath().normalize(), p -> new Semaphore(1));
+    }
+
+    private static LockFile lock(Path path, Semaphore local, boolean wait) throws IOException {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = wait ? channel.lock() : channel.tryLock();
+            if (lock == null) {
+                channel.close();
+                local.release();
+                return null;
+            }
+            return new LockFile(local, channel, lock);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            local.release();
+            throw e;
+        }
+    }
+}
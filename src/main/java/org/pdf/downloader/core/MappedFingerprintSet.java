@@ -0,0 +1,144 @@
+package org.pdf.downloader.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Set of 64-bit fingerprints kept in a memory-mapped open-addressing table (linear
+ * probing, 0 = empty slot). The table lives in the page cache rather than on the heap,
+ * survives restarts, and doubles in place when half full.
+ *
+ * <p>File layout: {@code long size, long capacity}, then {@code capacity} slots.
+ */
+public class MappedFingerprintSet implements Closeable {
+
+    private static final int HEADER_BYTES = 16;
+    private static final long INITIAL_CAPACITY = 1 << 16; // 512KB file
+    private static final long MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_BYTES) / Long.BYTES;
+
+    private final Path file;
+    private FileChannel channel;
+    private MappedByteBuffer table;
+    private long size;
+    private long capacity;
+
+    public MappedFingerprintSet(Path file) throws IOException {
+        this.file = file;
+        open(file, Files.exists(file) && Files.size(file) >= HEADER_BYTES ? -1 : INITIAL_CAPACITY);
+    }
+
+    /** Adds the fingerprint; false when it was already present. */
+    public synchronized boolean add(long fingerprint) throws IOException {
+        long key = fingerprint == 0 ? 1 : fingerprint; // 0 marks empty slots
+        if (!insert(key)) {
+            return false;
+        }
+        table.putLong(0, ++size);
+        if (size * 2 > capacity) {
+            grow();
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(long fingerprint) {
+        long key = fingerprint == 0 ? 1 : fingerprint;
+        long mask = capacity - 1;
+        for (long slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long existing = table.getLong(offset(slot));
+            if (existing == key) {
+                return true;
+            }
+            if (existing == 0) {
+                return false;
+            }
+        }
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        table.force();
+        channel.close();
+    }
+
+    /** Puts the key in its probe run; false when it is already there. */
+    private boolean insert(long key) {
+        long mask = capacity - 1;
+        for (long slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long existing = table.getLong(offset(slot));
+            if (existing == key) {
+                return false;
+            }
+            if (existing == 0) {
+                table.putLong(offset(slot), key);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Doubles the table within the same file: maps the larger region (extending the file)
+     * and rehashes into it. The file is never replaced or renamed, which would fail while
+     * it is mapped (Windows refuses both until the old mapping is collected); only the
+     * keys are copied to the heap for the duration of the rehash.
+     */
+    private void grow() throws IOException {
+        if (capacity * 2 > MAX_CAPACITY) {
+            throw new IOException("Fingerprint index full: " + file);
+        }
+        long[] keys = new long[(int) size];
+        int count = 0;
+        for (long slot = 0; slot < capacity; slot++) {
+            long key = table.getLong(offset(slot));
+            if (key != 0) {
+                keys[count++] = key;
+                table.putLong(offset(slot), 0);
+            }
+        }
+        capacity *= 2;
+        table = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + capacity * Long.BYTES);
+        table.putLong(8, capacity);
+        for (int i = 0; i < count; i++) {
+            insert(keys[i]);
+        }
+    }
+
+    /** Maps the file; a positive {@code newCapacity} initializes an empty table of that size. */
+    private void open(Path path, long newCapacity) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (newCapacity < 0) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            newCapacity = header.getLong(8);
+            size = header.getLong(0);
+            if (Long.bitCount(newCapacity) != 1 || channel.size() < HEADER_BYTES + newCapacity * Long.BYTES) {
+                throw new IOException("Corrupt fingerprint index: " + path);
+            }
+        } else {
+            size = 0;
+        }
+        capacity = newCapacity;
+        table = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + capacity * Long.BYTES);
+        table.putLong(0, size);
+        table.putLong(8, capacity);
+    }
+
+    private static int offset(long slot) {
+        return (int) (HEADER_BYTES + slot * Long.BYTES);
+    }
+
+    /** Spreads already-hashed keys so clustered values don't share probe runs. */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -3,119 +3,275 @@ package org.pdf.downloader.core;
 import org.pdf.downloader.model.DownloadTask;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.concurrent.ThreadLocalRandom;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.function.Function;
 
 public class MultiThreadedPDFDownloader {
     
-    private static final int BUFFER_SIZE = 16384; // 16KB buffer
-    private static final int TIMEOUT = 30000; // 30 seconds
-    private static final int MAX_RETRIES = 3;
-    private static final long RETRY_DELAY_MS = 1000; // 1 second base delay
+    private final HttpTransport transport;
+    private final SegmentedDownloader segmentedDownloader;
+    /** Ways to finish without a body: file on disk, stored copies, 304s; its store may be null. */
+    private final TransferShortcuts shortcuts;
+    /** Bandwidth pacing per host (global / host / job budgets combined). */
+    private final Function<String, Throttle> throttles;
+    private final RetryPolicy retryPolicy;
+    /** Fails tasks for a host at once while it is down, instead of retrying into it. */
+    private final CircuitBreaker circuitBreaker;
     
-    public void download(DownloadTask task) throws IOException {
-        IOException lastException = null;
-        
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+    public MultiThreadedPDFDownloader() {
+        this(new HttpTransport());
+    }
+    
+    public MultiThreadedPDFDownloader(HttpTransport transport) {
+        this(transport, null);
+    }
+    
+    public MultiThreadedPDFDownloader(HttpTransport transport, ContentStore store) {
+        this(transport, store, host -> Throttle.NONE);
+    }
+    
+    public MultiThreadedPDFDownloader(HttpTransport transport, ContentStore store,
+                                      Function<String, Throttle> throttles) {
+        this(transport, store, throttles, RetryPolicy.DEFAULT, new CircuitBreaker());
+    }
+    
+    /** Downloads every file over a single connection; see the last constructor for segmented transfers. */
+    public MultiThreadedPDFDownloader(HttpTransport transport, ContentStore store,
+                                      Function<String, Throttle> throttles,
+                                      RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+        this(transport, store, throttles, retryPolicy, circuitBreaker, null);
+    }
+    
+    /**
+     * @param segmentedDownloader splits large files across extra connections when capacity
+     *                            allows; null always uses one connection
+     */
+    public MultiThreadedPDFDownloader(HttpTransport transport, ContentStore store,
+                                      Function<String, Throttle> throttles,
+                                      RetryPolicy retryPolicy, CircuitBreaker circuitBreaker,
+                                      SegmentedDownloader segmentedDownloader) {
+        this.transport = transport;
+        this.shortcuts = new TransferShortcuts(store);
+        this.throttles = throttles;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+        this.segmentedDownloader = segmentedDownloader;
+    }
+    
+    /**
+     * Downloads the task, retrying only failures that can succeed (see {@link RetryPolicy}).
+     * Returns what the manifest should record about the file now on disk (size and validators).
+     */
+    public DownloadManifest.Entry download(DownloadTask task) throws IOException {
+        String host = hostOf(task);
+        for (int attempt = 1; ; attempt++) {
+            boolean trial = circuitBreaker.check(host);
+            boolean recorded = false;
             try {
-                performDownload(task);
-                return; // Success
+                DownloadManifest.Entry entry = performDownload(task);
+                recorded = true;
+                circuitBreaker.recordSuccess(host);
+                return entry;
             } catch (IOException e) {
-                lastException = e;
-                
-                if (attempt < MAX_RETRIES) {
-                    // Exponential backoff with jitter
-                    long delay = RETRY_DELAY_MS * (1L << (attempt - 1)) + 
-                                ThreadLocalRandom.current().nextLong(0, 1000);
-                    
-                    try {
-                        Thread.sleep(delay);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Download interrupted", ie);
-                    }
+                if (isInterruption(e)) {
+                    // Job cancelled: not the host's fault, and never worth a retry
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Download cancelled");
+                }
+                recorded = true;
+                circuitBreaker.recordFailure(host, e);
+                long delay = retryPolicy.retryDelayMillis(e, attempt);
+                if (delay < 0) {
+                    throw retryPolicy.giveUp(e, attempt);
+                }
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Download interrupted", ie);
+                }
+            } catch (RuntimeException e) {
+                // A bug or an unexpected response is still a failed request for the circuit
+                recorded = true;
+                circuitBreaker.recordFailure(host, e);
+                throw e;
+            } finally {
+                if (trial && !recorded) {
+                    circuitBreaker.endTrial(host); // Error or similar: never leave the trial pending
                 }
             }
         }
-        
-        throw new IOException("Failed after " + MAX_RETRIES + " attempts", lastException);
     }
     
-    private void performDownload(DownloadTask task) throws IOException {
-        URL url = new URL(task.getUrl());
-        HttpURLConnection connection = createConnection(url);
+    /**
+     * True when the read failed because this thread was interrupted. The HTTP client's body
+     * stream reports that as a plain IOException and may clear the flag, so look at the causes.
+     */
+    static boolean isInterruption(IOException error) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedException || t instanceof ClosedByInterruptException
+                    || t instanceof InterruptedIOException && !(t instanceof SocketTimeoutException)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private DownloadManifest.Entry performDownload(DownloadTask task) throws IOException {
+        Path targetPath = Paths.get(task.getDownloadDir(), task.getFileName());
         
-        try {
-            validateResponse(connection);
+        // Local check before any network: a file on disk or a fresh stored copy
+        DownloadManifest.Entry local = shortcuts.beforeRequest(task, targetPath);
+        if (local != null) {
+            return local;
+        }
+        ContentStore.Record known = shortcuts.known(task);
+        
+        PartFile partFile = PartFile.open(targetPath, task.getUrl());
+        long offset = partFile.resumeOffset();
+        
+        HttpRequest.Builder request = transport.newRequest(task.getUrl()).GET();
+        if (offset > 0) {
+            // Continue the .part; If-Range makes the server send the full body if it changed
+            request.header("Range", "bytes=" + offset + "-")
+                   .header("If-Range", partFile.validator());
+        } else {
+            shortcuts.addConditions(request, task, known);
+        }
+        HttpResponse<InputStream> response = send(request.build());
+        
+        try (InputStream body = response.body()) {
+            if (offset > 0 && response.statusCode() == HttpResponses.HTTP_RANGE_NOT_SATISFIABLE) {
+                // Either the .part already holds the whole file or it's stale; start over next attempt
+                if (offset == HttpResponses.totalLength(response.headers())) {
+                    verifyDownload(partFile.getPart());
+                    partFile.commit();
+                    return manifestEntry(task, targetPath, partFile.getEtag(), partFile.getLastModified());
+                }
+                partFile.discard();
+                throw new IOException("Stale partial download discarded: " + response.uri());
+            }
+            if (response.statusCode() != HttpResponses.HTTP_PARTIAL_CONTENT) {
+                // 304 for the file on disk or a stored copy, or content already stored
+                DownloadManifest.Entry reused = shortcuts.withoutBody(task, targetPath, response.statusCode(),
+                    response.headers(), known);
+                if (reused != null) {
+                    return reused;
+                }
+            }
+            HttpResponses.check(response.statusCode(), response.headers(), response.uri());
             
-            Path targetPath = Paths.get(task.getDownloadDir(), task.getFileName());
+            boolean resuming = response.statusCode() == HttpResponses.HTTP_PARTIAL_CONTENT;
+            if (resuming && HttpResponses.rangeStart(response.headers()) != offset) {
+                partFile.discard();
+                throw new IOException("Unexpected Content-Range for resumed download: " + response.uri());
+            }
+            if (!resuming) {
+                partFile.begin(task.getUrl(), response.headers());
+            }
             
-            // Check if file already exists and has content
-            if (Files.exists(targetPath) && Files.size(targetPath) > 0) {
-                // File already exists, skip download
-                return;
+            if (!resuming && segmentedDownloader != null && segmentedDownloader.supports(response)
+                    && downloadSegmented(task, response, body, partFile)) {
+                shortcuts.store(task, targetPath, null, partFile.getEtag(), partFile.getLastModified());
+                return manifestEntry(task, targetPath, partFile.getEtag(), partFile.getLastModified());
             }
             
-            // Stream download to avoid memory issues
-            try (InputStream inputStream = new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE);
-                 OutputStream outputStream = Files.newOutputStream(targetPath)) {
+            // Hash in-stream for the store when the whole body passes through this copy
+            MessageDigest digest = shortcuts.hasStore() && !resuming ? ContentStore.newDigest() : null;
+            
+            // Stream straight into the .part; partial bytes stay there across failures
+            try (ReadableByteChannel source = Channels.newChannel(body);
+                 FileChannel target = FileChannel.open(partFile.getPart(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
                 
-                streamCopy(inputStream, outputStream);
+                streamCopy(source, target, resuming ? offset : 0, task, digest);
+            } catch (NotPdfException e) {
+                // HTML error page or similar; aborted on the first chunk and not worth resuming
+                partFile.discard();
+                throw e;
             }
             
-            // Verify download
-            verifyDownload(targetPath);
-            
-        } finally {
-            connection.disconnect();
+            verifyDownload(partFile.getPart());
+            partFile.commit();
+            String etag = response.headers().firstValue("ETag").orElse(partFile.getEtag());
+            String lastModified = response.headers().firstValue("Last-Modified").orElse(partFile.getLastModified());
+            shortcuts.store(task, targetPath, digest != null ? ContentStore.hex(digest) : null, etag, lastModified);
+            return manifestEntry(task, targetPath, etag, lastModified);
         }
     }
     
-    private HttpURLConnection createConnection(URL url) throws IOException {
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        
-        // Set connection properties
-        connection.setRequestMethod("GET");
-        connection.setConnectTimeout(TIMEOUT);
-        connection.setReadTimeout(TIMEOUT);
-        connection.setRequestProperty("User-Agent", 
-            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36");
-        connection.setRequestProperty("Accept", 
-            "application/pdf,application/octet-stream,*/*");
-        connection.setRequestProperty("Connection", "close");
-        
-        return connection;
+    private DownloadManifest.Entry manifestEntry(DownloadTask task, Path targetPath,
+                                                 String etag, String lastModified) throws IOException {
+        return TransferShortcuts.entry(task, targetPath, etag, lastModified);
     }
     
-    private void validateResponse(HttpURLConnection connection) throws IOException {
-        int responseCode = connection.getResponseCode();
-        
-        if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) {
-            throw new IOException("File not found (404): " + connection.getURL());
-        } else if (responseCode == HttpURLConnection.HTTP_FORBIDDEN) {
-            throw new IOException("Access forbidden (403): " + connection.getURL());
-        } else if (responseCode == HttpURLConnection.HTTP_UNAVAILABLE) {
-            throw new IOException("Service unavailable (503): " + connection.getURL());
-        } else if (responseCode != HttpURLConnection.HTTP_OK) {
-            throw new IOException("HTTP " + responseCode + ": " + connection.getResponseMessage());
+    /**
+     * Large body on a range-capable origin: split it across parallel connections.
+     * Positional writes leave no contiguous prefix to resume from, so the .part is
+     * dropped on failure instead of being kept for a Range retry. Returns false, with the
+     * body untouched, when no extra connection is free and it should be streamed as usual.
+     */
+    private boolean downloadSegmented(DownloadTask task, HttpResponse<InputStream> response,
+                                      InputStream body, PartFile partFile) throws IOException {
+        long length = response.headers().firstValueAsLong("Content-Length").orElseThrow();
+        try {
+            if (!segmentedDownloader.download(task.getUrl(), partFile.validator(), length, body,
+                    partFile.getPart(), throttleFor(task))) {
+                return false;
+            }
+            verifyDownload(partFile.getPart());
+        } catch (IOException e) {
+            partFile.discard();
+            throw e;
         }
+        partFile.commit();
+        return true;
     }
     
-    private void streamCopy(InputStream input, OutputStream output) throws IOException {
-        byte[] buffer = new byte[BUFFER_SIZE];
-        int bytesRead;
-        long totalBytesRead = 0;
-        
-        while ((bytesRead = input.read(buffer)) != -1) {
-            output.write(buffer, 0, bytesRead);
-            totalBytesRead += bytesRead;
+    private Throttle throttleFor(DownloadTask task) throws IOException {
+        return throttles.apply(hostOf(task));
+    }
+    
+    private static String hostOf(DownloadTask task) throws IOException {
+        String host = HttpTransport.toUri(task.getUrl()).getHost();
+        return host != null ? host : "unknown";
+    }
+    
+    private HttpResponse<InputStream> send(HttpRequest request) throws IOException {
+        try {
+            return transport.client().send(request, transport.streamingBody());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Download interrupted", e);
+        }
+    }
+    
+    private void streamCopy(ReadableByteChannel source, FileChannel target, long position,
+                            DownloadTask task, MessageDigest digest) throws IOException {
+        ChannelCopy copy = new ChannelCopy(source, target, position).throttle(throttleFor(task));
+        if (digest != null) {
+            copy.digest(digest);
         }
+        if (position == 0) {
+            // Fresh body: check the magic on the first chunk instead of reopening the file afterwards
+            copy.expectPdfHeader(task.getUrl());
+        }
+        long totalBytesRead = copy.run(Long.MAX_VALUE);
         
-        if (totalBytesRead == 0) {
+        if (totalBytesRead == 0 && position == 0) {
             throw new IOException("No data received - empty response");
         }
     }
@@ -129,15 +285,5 @@ public class MultiThreadedPDFDownloader {
         if (fileSize == 0) {
             throw new IOException("Downloaded file is empty: " + filePath);
         }
-        
-        // Basic PDF validation - check if file starts with PDF header
-        try (InputStream is = Files.newInputStream(filePath)) {
-            byte[] header = new byte[4];
-            int read = is.read(header);
-            
-            if (read < 4 || !new String(header).equals("%PDF")) {
-                throw new IOException("Downloaded file is not a valid PDF: " + filePath);
-            }
-        }
     }
 }
\ No newline at end of file
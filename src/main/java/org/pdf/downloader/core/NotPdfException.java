@@ -0,0 +1,13 @@
+package org.pdf.downloader.core;
+
+import java.io.IOException;
+
+/**
+ * The response body didn't start with the {@code %PDF} magic – typically an HTML error
+ * or login page served with 200. Raised on the first chunk, before the body is written.
+ */
+public class NotPdfException extends IOException {
+    public NotPdfException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,124 @@
+package org.pdf.downloader.core;
+
+import org.pdf.downloader.model.DownloadTask;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Consumer side of a job's {@link TaskPipeline} that hands out tasks in a
+ * {@link TaskOrder}. FIFO passes tasks through as discovered. Otherwise up to
+ * {@code lookahead} tasks are read ahead of the downloads and sized meanwhile; each
+ * free download slot then takes the best sized task. A slot waits briefly for sizes
+ * still being looked up, so a big file found a moment later can still go first.
+ * Ordering covers the read-ahead window: a task discovered long after the others have
+ * started simply joins the window then. A waiting slot sleeps until a task is
+ * published, a size arrives or its wait runs out.
+ */
+public class OrderedTaskQueue {
+
+    /** How long a free slot waits for pending size lookups before taking the best task ready. */
+    private static final long SIZE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final TaskPipeline pipeline;
+    private final TaskOrder order;
+    private final TaskSizer sizer;
+    private final int lookahead;
+    private final PriorityQueue<Sized> ready;
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Signalled when a task is published or the pipeline closes, and when a size arrives. */
+    private final Condition changed = lock.newCondition();
+    private int sizing;
+    private long sequence;
+
+    /** @param sizer unused (may be null) for FIFO */
+    public OrderedTaskQueue(TaskPipeline pipeline, TaskOrder order, TaskSizer sizer, int lookahead) {
+        this.pipeline = pipeline;
+        this.order = order;
+        this.sizer = sizer;
+        this.lookahead = Math.max(1, lookahead);
+        Comparator<Sized> bySize = Comparator.comparing(s -> s.task, order.comparator());
+        // Equal sizes keep discovery order
+        this.ready = new PriorityQueue<>(bySize.thenComparingLong(s -> s.sequence));
+        if (order != TaskOrder.FIFO) {
+            pipeline.onOffer(this::signal);
+        }
+    }
+
+    /** Next task to download, or null once the pipeline is closed and everything was handed out. */
+    public DownloadTask next() throws InterruptedException {
+        if (order == TaskOrder.FIFO) {
+            return pipeline.take();
+        }
+        long deadline = 0;
+        lock.lock();
+        try {
+            while (true) {
+                fill();
+                if (!ready.isEmpty()) {
+                    long now = System.nanoTime();
+                    if (deadline == 0) {
+                        deadline = now + SIZE_WAIT_NANOS;
+                    }
+                    if (sizing == 0 || now - deadline >= 0) {
+                        return ready.poll().task;
+                    }
+                    changed.awaitNanos(deadline - now);
+                } else if (sizing == 0 && pipeline.isDrained()) {
+                    return null;
+                } else {
+                    changed.await();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads what discovery has published so far into the window and starts sizing it.
+     * Called with the lock held.
+     */
+    private void fill() {
+        while (ready.size() + sizing < lookahead) {
+            DownloadTask task = pipeline.poll();
+            if (task == null) {
+                return;
+            }
+            sizing++;
+            long seq = sequence++;
+            sizer.size(task).whenComplete((sized, error) -> {
+                lock.lock();
+                try {
+                    sizing--;
+                    ready.add(new Sized(sized != null ? sized : task, seq));
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            });
+        }
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Sized {
+        private final DownloadTask task;
+        private final long sequence;
+
+        Sized(DownloadTask task, long sequence) {
+            this.task = task;
+            this.sequence = sequence;
+        }
+    }
+}
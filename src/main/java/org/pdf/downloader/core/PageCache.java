@@ -0,0 +1,343 @@
+package org.pdf.downloader.core;
+
+import org.pdf.downloader.model.Anchor;
+import org.pdf.downloader.model.PageLinks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Shared on-disk cache of index pages, keyed by canonical URL. Each entry is one
+ * gzipped file holding the extracted {@link PageLinks} together with the raw HTML and
+ * the response's ETag / Last-Modified:
+ * <ul>
+ *   <li>younger than the TTL – served without any request or parse;</li>
+ *   <li>older – revalidated with If-None-Match / If-Modified-Since; a 304 serves the
+ *       stored links again and restarts the TTL;</li>
+ *   <li>written by an older {@link AnchorExtractor#VERSION} – links are rebuilt from the
+ *       stored HTML.</li>
+ * </ul>
+ * Concurrent requests for the same page (several jobs submitted for one URL) share a
+ * single fetch. Responses marked {@code Cache-Control: no-store} are not kept.
+ */
+public class PageCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+    private static final int FORMAT = 1;
+    /** Larger pages keep only their link list. */
+    private static final int MAX_HTML_BYTES = 8 << 20;
+
+    private final Path dir;
+    private final long ttlMillis;
+    private final Map<String, CompletableFuture<PageLinks>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public PageCache(Path dir, Duration ttl) throws IOException {
+        this.dir = dir;
+        this.ttlMillis = Math.max(0, ttl.toMillis());
+        Files.createDirectories(dir);
+    }
+
+    public static PageCache openDefault(Duration ttl) throws IOException {
+        return new PageCache(Paths.get(System.getProperty("user.home"), "Downloads", "PDFAPP", ".page-cache"), ttl);
+    }
+
+    /** The page's links, from the cache when fresh or still valid, otherwise fetched (once for concurrent callers). */
+    public PageLinks fetch(HttpTransport transport, String url) throws IOException {
+        String key = UrlCanonicalizer.canonicalize(url);
+        CompletableFuture<PageLinks> mine = new CompletableFuture<>();
+        CompletableFuture<PageLinks> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return await(running, url);
+        }
+        try {
+            PageLinks page = load(transport, url, key);
+            mine.complete(page);
+            return page;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public String report() {
+        return "Page cache: " + hits.get() + " hits, " + revalidated.get() + " revalidated (304), "
+            + fetched.get() + " fetched, " + coalesced.get() + " coalesced";
+    }
+
+    private PageLinks load(HttpTransport transport, String url, String key) throws IOException {
+        Path file = fileFor(key);
+        Entry cached = read(file, key);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.fetchedAt < ttlMillis) {
+            hits.incrementAndGet();
+            return cached.page;
+        }
+
+        HttpRequest.Builder request = AnchorExtractor.request(transport, url);
+        if (cached != null) {
+            if (!cached.etag.isEmpty()) request.header("If-None-Match", cached.etag);
+            if (!cached.lastModified.isEmpty()) request.header("If-Modified-Since", cached.lastModified);
+        }
+        HttpResponse<InputStream> response = AnchorExtractor.send(transport, request.build(), url);
+        try (InputStream body = response.body()) {
+            if (cached != null && response.statusCode() == 304) {
+                revalidated.incrementAndGet();
+                cached.fetchedAt = now;
+                write(file, cached);
+                return cached.page;
+            }
+            fetched.incrementAndGet();
+            CappedCopy copy = new CappedCopy(body, MAX_HTML_BYTES);
+            PageLinks page = AnchorExtractor.extract(response, copy, url);
+            if (isStorable(response.headers())) {
+                Entry entry = new Entry(key, page, now);
+                entry.etag = response.headers().firstValue("ETag").orElse("");
+                entry.lastModified = response.headers().firstValue("Last-Modified").orElse("");
+                entry.contentType = response.headers().firstValue("Content-Type").orElse("text/html");
+                entry.html = copy.overflowed ? null : copy.bytes();
+                write(file, entry);
+            }
+            return page;
+        }
+    }
+
+    private static PageLinks await(CompletableFuture<PageLinks> running, String url) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Page fetch interrupted: " + url, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Page fetch failed: " + url, cause);
+        }
+    }
+
+    private static boolean isStorable(HttpHeaders headers) {
+        return !headers.firstValue("Cache-Control").orElse("").toLowerCase(Locale.ROOT).contains("no-store");
+    }
+
+    private Path fileFor(String key) {
+        MessageDigest digest = ContentStore.newDigest();
+        digest.update(key.getBytes(StandardCharsets.UTF_8));
+        String hash = ContentStore.hex(digest);
+        return dir.resolve(hash.substring(0, 2)).resolve(hash + ".page.gz");
+    }
+
+    /** Reads an entry; null when missing, unreadable or belonging to another URL. */
+    private Entry read(Path file, String key) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != FORMAT) {
+                return null;
+            }
+            int extractorVersion = in.readInt();
+            if (!key.equals(readString(in))) {
+                return null;
+            }
+            PageLinks page = new PageLinks(readString(in));
+            Entry entry = new Entry(key, page, in.readLong());
+            entry.etag = readString(in);
+            entry.lastModified = readString(in);
+            entry.contentType = readString(in);
+            page.setTitle(readString(in));
+            readStrings(in, page.getHeadings());
+            readStrings(in, page.getMetaContents());
+            int anchors = in.readInt();
+            for (int i = 0; i < anchors; i++) {
+                page.getAnchors().add(new Anchor(readString(in), readString(in), readString(in), readString(in)));
+            }
+            int htmlLength = in.readInt();
+            if (htmlLength >= 0) {
+                entry.html = in.readNBytes(htmlLength);
+            }
+            if (extractorVersion != AnchorExtractor.VERSION) {
+                return entry.html != null ? reparse(entry) : null;
+            }
+            return entry;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // Truncated or corrupt entry: fetch again and overwrite it
+            return null;
+        }
+    }
+
+    /** Rebuilds the link list from stored HTML after the extractor changed. */
+    private static Entry reparse(Entry old) throws IOException {
+        PageLinks page = new PageLinks(old.page.getUrl());
+        AnchorExtractor.parse(new InputStreamReader(new ByteArrayInputStream(old.html),
+            AnchorExtractor.charsetOf(old.contentType)), page.getUrl(), AnchorExtractor.collector(page));
+        Entry entry = new Entry(old.key, page, old.fetchedAt);
+        entry.etag = old.etag;
+        entry.lastModified = old.lastModified;
+        entry.contentType = old.contentType;
+        entry.html = old.html;
+        return entry;
+    }
+
+    /** Writes to a temp file and moves it over the old entry, so readers never see half an entry. */
+    private void write(Path file, Entry entry) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), "page", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                PageLinks page = entry.page;
+                out.writeInt(FORMAT);
+                out.writeInt(AnchorExtractor.VERSION);
+                writeString(out, entry.key);
+                writeString(out, page.getUrl());
+                out.writeLong(entry.fetchedAt);
+                writeString(out, entry.etag);
+                writeString(out, entry.lastModified);
+                writeString(out, entry.contentType);
+                writeString(out, page.getTitle());
+                writeStrings(out, page.getHeadings());
+                writeStrings(out, page.getMetaContents());
+                out.writeInt(page.getAnchors().size());
+                for (Anchor anchor : page.getAnchors()) {
+                    writeString(out, anchor.getHref());
+                    writeString(out, anchor.getAbsoluteUrl());
+                    writeString(out, anchor.getText());
+                    writeString(out, anchor.getHeading());
+                }
+                out.writeInt(entry.html != null ? entry.html.length : -1);
+                if (entry.html != null) {
+                    out.write(entry.html);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_HTML_BYTES) {
+            throw new IOException("Corrupt page cache entry");
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static void readStrings(DataInputStream in, List<String> target) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            target.add(readString(in));
+        }
+    }
+
+    private static class Entry {
+        private final String key;
+        private final PageLinks page;
+        private long fetchedAt;
+        private String etag = "";
+        private String lastModified = "";
+        private String contentType = "text/html";
+        private byte[] html;
+
+        Entry(String key, PageLinks page, long fetchedAt) {
+            this.key = key;
+            this.page = page;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    /** Passes the body through to the extractor and keeps a copy of the first {@code limit} bytes. */
+    private static class CappedCopy extends FilterInputStream {
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        private final int limit;
+        private boolean overflowed;
+
+        CappedCopy(InputStream in, int limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                keep(new byte[] {(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                keep(buffer, offset, n);
+            }
+            return n;
+        }
+
+        private void keep(byte[] buffer, int offset, int length) {
+            if (overflowed) {
+                return;
+            }
+            if (copy.size() + length > limit) {
+                overflowed = true;
+                copy.reset();
+                return;
+            }
+            copy.write(buffer, offset, length);
+        }
+
+        byte[] bytes() {
+            return copy.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.pdf.downloader.core;
+
+import org.pdf.downloader.model.Anchor;
+import org.pdf.downloader.model.CrawlOptions;
+import org.pdf.downloader.model.PageLinks;
+import org.pdf.downloader.observer.DownloadObserver;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Breadth-first crawl of same-host pages below a start page. Pages come from a
+ * persistent {@link CrawlFrontier} and are fetched in parallel by workers on the shared
+ * scheduler's discovery threads: the calling thread is one worker, and up to
+ * {@link CrawlOptions#getConcurrency()} minus one more join whenever a discovery thread
+ * is idle. The frontier is capped by {@link CrawlOptions#getMaxPages()}, fetches per
+ * host are limited separately, and URLs are compared in canonical form so a page is
+ * fetched once – also across restarts of the same crawl. Pages come from a
+ * {@link PageSource} (streamed through {@link AnchorExtractor}, possibly cached) rather
+ * than being parsed into a DOM.
+ */
+public class PageCrawler {
+
+    /** Receives each fetched page; called concurrently from crawler threads. */
+    public interface PageHandler {
+        void onPage(String url, PageLinks page, int depth);
+    }
+
+    /** Where pages come from: a direct fetch or the shared {@link PageCache}. */
+    @FunctionalInterface
+    public interface PageSource {
+        PageLinks fetch(String url) throws IOException;
+    }
+
+    private final CrawlOptions options;
+    private final DownloadObserver observer;
+    private final DownloadScheduler scheduler;
+    private final PageSource pages;
+    /** Links that are documents rather than pages; never crawled. */
+    private final Predicate<String> documentLinks;
+    private final Map<String, Semaphore> hostSlots = new ConcurrentHashMap<>();
+
+    public PageCrawler(CrawlOptions options, DownloadObserver observer, DownloadScheduler scheduler,
+                       HttpTransport transport) {
+        this(options, observer, scheduler, url -> AnchorExtractor.fetch(transport, url), PageCrawler::isPdfLink);
+    }
+
+    public PageCrawler(CrawlOptions options, DownloadObserver observer, DownloadScheduler scheduler,
+                       PageSource pages, Predicate<String> documentLinks) {
+        this.options = options;
+        this.observer = observer;
+        this.scheduler = scheduler;
+        this.pages = pages;
+        this.documentLinks = documentLinks;
+    }
+
+    /**
+     * Hands {@code startPage} (depth 0) and every page reached from it to {@code handler}.
+     * A resumed frontier continues where the previous run stopped. Returns true when the
+     * frontier was exhausted, false when the crawl was cut short.
+     */
+    public boolean crawl(String startUrl, PageLinks startPage, CrawlFrontier frontier, PageHandler handler) {
+        long started = System.currentTimeMillis();
+        String baseHost = hostOf(startUrl);
+        // The start page counts on top of the page budget
+        long maxQueued = options.getMaxPages() + 1L;
+
+        List<CompletableFuture<Void>> helpers = new ArrayList<>();
+        AtomicInteger helping = new AtomicInteger();
+        boolean complete = false;
+        try {
+            if (!frontier.isResumed()) {
+                frontier.addPage(startUrl, 0, maxQueued);
+            }
+            // This thread works too, taking on helpers as discovery threads come free
+            CrawlFrontier.Page next;
+            while ((next = frontier.next()) != null) {
+                addHelpers(helpers, helping, startUrl, startPage, baseHost, maxQueued, frontier, handler);
+                visit(next, startUrl, startPage, baseHost, maxQueued, frontier, handler);
+            }
+            for (CompletableFuture<Void> helper : helpers) {
+                helper.get();
+            }
+            complete = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            observer.onError("Crawl interrupted after " + frontier.finished() + " pages");
+        } catch (ExecutionException | IOException | RuntimeException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            observer.onError("Crawl failed: " + cause.getMessage());
+        } finally {
+            helpers.forEach(helper -> helper.cancel(true));
+        }
+
+        observer.onStart("🕸️ Crawled " + frontier.finished() + " pages in "
+            + (System.currentTimeMillis() - started) + " ms"
+            + (frontier.queued() >= maxQueued ? " (page limit " + options.getMaxPages() + " reached)" : ""));
+        return complete;
+    }
+
+    /** Starts helper workers on idle discovery threads, up to the crawl's concurrency. */
+    private void addHelpers(List<CompletableFuture<Void>> helpers, AtomicInteger helping, String startUrl,
+                            PageLinks startPage, String baseHost, long maxQueued, CrawlFrontier frontier,
+                            PageHandler handler) {
+        while (helping.get() < options.getConcurrency() - 1) {
+            helping.incrementAndGet();
+            CompletableFuture<Void> helper = scheduler.tryDiscover(() -> {
+                try {
+                    CrawlFrontier.Page next;
+                    while ((next = frontier.next()) != null) {
+                        visit(next, startUrl, startPage, baseHost, maxQueued, frontier, handler);
+                    }
+                    return null;
+                } finally {
+                    helping.decrementAndGet();
+                }
+            });
+            if (helper == null) {
+                helping.decrementAndGet();
+                return; // no idle thread; try again after the next page
+            }
+            helpers.add(helper);
+        }
+    }
+
+    private void visit(CrawlFrontier.Page next, String startUrl, PageLinks startPage, String baseHost,
+                       long maxQueued, CrawlFrontier frontier, PageHandler handler)
+            throws IOException, InterruptedException {
+        try {
+            PageLinks page = next.getDepth() == 0 && next.getUrl().equals(startUrl)
+                ? startPage : fetch(next.getUrl());
+            if (page == null) {
+                return;
+            }
+            handler.onPage(next.getUrl(), page, next.getDepth());
+            if (next.getDepth() < options.getMaxDepth()) {
+                enqueueChildren(page, next.getDepth() + 1, baseHost, maxQueued, frontier);
+            }
+        } finally {
+            frontier.done(next);
+        }
+    }
+
+    /** Fetches one page, or returns null after logging a failure (child pages are optional). */
+    private PageLinks fetch(String url) throws InterruptedException {
+        Semaphore slots = hostSlots.computeIfAbsent(hostOf(url), h -> new Semaphore(options.getPerHostConcurrency()));
+        slots.acquire();
+        try {
+            return pages.fetch(url);
+        } catch (IOException e) {
+            observer.onError("Failed to crawl: " + url + " - " + e.getMessage());
+            return null;
+        } finally {
+            slots.release();
+        }
+    }
+
+    private void enqueueChildren(PageLinks page, int depth, String baseHost, long maxQueued,
+                                 CrawlFrontier frontier) throws IOException {
+        for (Anchor anchor : page.getAnchors()) {
+            String href = anchor.getAbsoluteUrl();
+            if (href.isEmpty() || documentLinks.test(href) || !isHttp(href)) continue;
+            if (!Objects.equals(baseHost, hostOf(href))) continue; // stay on same site
+            frontier.addPage(href, depth, maxQueued);
+        }
+    }
+
+    private static boolean isPdfLink(String url) {
+        return UrlCanonicalizer.hasPdfPath(url);
+    }
+
+    private static boolean isHttp(String url) {
+        String lower = url.toLowerCase();
+        return lower.startsWith("http://") || lower.startsWith("https://");
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase() : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
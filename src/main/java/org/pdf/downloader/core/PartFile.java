@@ -0,0 +1,122 @@
+package org.pdf.downloader.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.http.HttpHeaders;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * In-progress download kept next to its target as {@code <name>.part}, with a
+ * {@code <name>.part.meta} sidecar holding the validator (ETag / Last-Modified) the
+ * bytes came from. Lets a retry – or the next run – continue with {@code Range: bytes=N-}
+ * instead of starting from zero.
+ */
+public class PartFile {
+
+    private static final String KEY_URL = "url";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "lastModified";
+
+    private final Path target;
+    private final Path part;
+    private final Path meta;
+    private String etag;
+    private String lastModified;
+
+    private PartFile(Path target) {
+        this.target = target;
+        this.part = target.resolveSibling(target.getFileName() + ".part");
+        this.meta = target.resolveSibling(target.getFileName() + ".part.meta");
+    }
+
+    /**
+     * Loads the resume state for a target. A .part without a readable sidecar (or one
+     * written for another URL) can't be trusted, so it is discarded.
+     */
+    public static PartFile open(Path target, String url) throws IOException {
+        PartFile pf = new PartFile(target);
+        if (Files.exists(pf.part) && Files.exists(pf.meta)) {
+            Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(pf.meta)) {
+                props.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                pf.discard();
+                return pf;
+            }
+            if (url.equals(props.getProperty(KEY_URL))) {
+                pf.etag = props.getProperty(KEY_ETAG);
+                pf.lastModified = props.getProperty(KEY_LAST_MODIFIED);
+            }
+        }
+        if (pf.validator() == null) {
+            pf.discard();
+        }
+        return pf;
+    }
+
+    public Path getPart() {
+        return part;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /** Bytes already on disk that a Range request can continue from. */
+    public long resumeOffset() throws IOException {
+        return Files.exists(part) ? Files.size(part) : 0L;
+    }
+
+    /** Strong ETag preferred; weak ETags are not allowed in If-Range, so fall back to Last-Modified. */
+    public String validator() {
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return lastModified;
+    }
+
+    /** Starts a fresh .part for a full (200) response and records its validators. */
+    public void begin(String url, HttpHeaders headers) throws IOException {
+        etag = headers.firstValue("ETag").orElse(null);
+        lastModified = headers.firstValue("Last-Modified").orElse(null);
+        Files.deleteIfExists(part);
+        if (validator() == null) {
+            // Nothing to resume against next time; don't leave a sidecar behind
+            Files.deleteIfExists(meta);
+            return;
+        }
+        Properties props = new Properties();
+        props.setProperty(KEY_URL, url);
+        if (etag != null) props.setProperty(KEY_ETAG, etag);
+        if (lastModified != null) props.setProperty(KEY_LAST_MODIFIED, lastModified);
+        try (OutputStream out = Files.newOutputStream(meta)) {
+            props.store(out, "Partial download state");
+        }
+    }
+
+    /** Moves the finished .part into place and drops the sidecar. */
+    public void commit() throws IOException {
+        try {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.deleteIfExists(meta);
+    }
+
+    public void discard() throws IOException {
+        Files.deleteIfExists(part);
+        Files.deleteIfExists(meta);
+        etag = null;
+        lastModified = null;
+    }
+}
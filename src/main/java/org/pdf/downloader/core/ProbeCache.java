@@ -0,0 +1,87 @@
+package org.pdf.downloader.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers what {@link LinkProber} learned about extensionless links, in
+ * {@code <downloadDir>/.pdf-crawl/probes.log} ({@code checkedAt, PDF|OTHER, url} per
+ * line, keyed by canonical URL). It outlives individual crawls, so crawling the same
+ * site again sends no probe requests for links it has already classified. Entries
+ * older than {@link #MAX_AGE_MILLIS} are probed again.
+ */
+public class ProbeCache implements Closeable {
+
+    public static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+    private static final String FILE = ".pdf-crawl/probes.log";
+
+    private final Map<String, Boolean> results = new ConcurrentHashMap<>();
+    private final BufferedWriter log;
+
+    private ProbeCache(BufferedWriter log) {
+        this.log = log;
+    }
+
+    public static ProbeCache open(String downloadDir) throws IOException {
+        Path file = Paths.get(downloadDir).resolve(FILE);
+        Files.createDirectories(file.getParent());
+        ProbeCache cache = new ProbeCache(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        if (Files.exists(file)) {
+            long cutoff = System.currentTimeMillis() - MAX_AGE_MILLIS;
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t", 3);
+                    if (parts.length == 3 && parseLong(parts[0]) >= cutoff) {
+                        // Later lines win
+                        cache.results.put(parts[2], "PDF".equals(parts[1]));
+                    }
+                }
+            }
+        }
+        return cache;
+    }
+
+    /** True/false when {@code canonicalUrl} was classified recently, null when it needs a probe. */
+    public Boolean get(String canonicalUrl) {
+        return results.get(canonicalUrl);
+    }
+
+    public synchronized void put(String canonicalUrl, boolean pdf) throws IOException {
+        results.put(canonicalUrl, pdf);
+        log.write(System.currentTimeMillis() + "\t" + (pdf ? "PDF" : "OTHER") + "\t" + canonicalUrl);
+        log.newLine();
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    public synchronized void flush() throws IOException {
+        log.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.pdf.downloader.core;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed download is worth another attempt and how long to wait.
+ * Permanent failures (404, 403, other 4xx, a body that isn't a PDF) fail at once;
+ * throttling (429/503) waits for the server's Retry-After; everything else – resets,
+ * timeouts, 5xx – is treated as transient and retried with exponential backoff.
+ */
+public class RetryPolicy {
+
+    public enum FailureKind {
+        /** Will fail the same way again. */
+        PERMANENT,
+        /** Host asked us to back off (429/503). */
+        THROTTLED,
+        /** Network or server hiccup; a later attempt may succeed. */
+        TRANSIENT
+    }
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 1000, 60_000);
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    /** Longest Retry-After we sleep through; beyond that the task fails and the host's breaker takes over. */
+    private final long maxRetryAfterMillis;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxRetryAfterMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxRetryAfterMillis = maxRetryAfterMillis;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public static FailureKind classify(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof HttpStatusException) {
+                int status = ((HttpStatusException) t).getStatusCode();
+                if (((HttpStatusException) t).isThrottling()) {
+                    return FailureKind.THROTTLED;
+                }
+                // 408 Request Timeout is the client-side exception among 4xx
+                return status >= 400 && status < 500 && status != 408 ? FailureKind.PERMANENT : FailureKind.TRANSIENT;
+            }
+            if (t instanceof NotPdfException || t instanceof CircuitOpenException) {
+                return FailureKind.PERMANENT;
+            }
+        }
+        return FailureKind.TRANSIENT;
+    }
+
+    /**
+     * Delay before attempt {@code attempt + 1}, or -1 when the failure shouldn't be retried
+     * (permanent, attempts used up, or a Retry-After longer than we are willing to wait).
+     */
+    public long retryDelayMillis(Throwable error, int attempt) {
+        FailureKind kind = classify(error);
+        if (kind == FailureKind.PERMANENT || attempt >= maxAttempts) {
+            return -1;
+        }
+        long backoff = baseDelayMillis * (1L << (attempt - 1)) + ThreadLocalRandom.current().nextLong(0, 1000);
+        if (kind == FailureKind.THROTTLED) {
+            long retryAfter = retryAfterMillis(error);
+            if (retryAfter > maxRetryAfterMillis) {
+                return -1;
+            }
+            return Math.max(retryAfter, backoff);
+        }
+        return backoff;
+    }
+
+    /** Exception to surface once retrying stops: permanent failures as-is, others wrapped with the attempt count. */
+    public IOException giveUp(IOException error, int attempts) {
+        if (attempts == 1 && classify(error) == FailureKind.PERMANENT) {
+            return error;
+        }
+        return new IOException("Failed after " + attempts + (attempts == 1 ? " attempt" : " attempts"), error);
+    }
+
+    private static long retryAfterMillis(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof HttpStatusException) {
+                return ((HttpStatusException) t).getRetryAfterMillis();
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,213 @@
+package org.pdf.downloader.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Pulls one large PDF over several connections: the file is split into byte ranges
+ * that are fetched in parallel and written with positional {@link FileChannel} writes
+ * into a preallocated file. Only used when the origin advertises {@code Accept-Ranges: bytes},
+ * sends a validator for If-Range and the body is big enough for the extra requests to pay off.
+ * Each extra connection takes a host permit from the job's limiter and a slot on the
+ * shared transfer tier, and only when both are free right away – segmenting never
+ * waits for capacity or exceeds it.
+ */
+public class SegmentedDownloader {
+
+    private static final long MIN_SEGMENTED_SIZE = 16L * 1024 * 1024; // 16MB
+    private static final long MIN_SEGMENT_SIZE = 4L * 1024 * 1024;    // 4MB
+    private static final int MAX_SEGMENTS = 4;
+    private static final int SEGMENT_RETRIES = 2;
+
+    private final HttpTransport transport;
+    private final DownloadScheduler scheduler;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public SegmentedDownloader(HttpTransport transport, DownloadScheduler scheduler,
+                               AdaptiveConcurrencyLimiter limiter) {
+        this.transport = transport;
+        this.scheduler = scheduler;
+        this.limiter = limiter;
+    }
+
+    /**
+     * True when a full (200) response can be split into ranges. A strong ETag or a
+     * Last-Modified is required: without If-Range a file that changes mid-way would be
+     * stitched together from two versions.
+     */
+    public boolean supports(HttpResponse<?> response) {
+        HttpHeaders headers = response.headers();
+        boolean ranges = headers.firstValue("Accept-Ranges")
+            .map(v -> v.toLowerCase().contains("bytes"))
+            .orElse(false);
+        String etag = headers.firstValue("ETag").orElse(null);
+        boolean validated = etag != null && !etag.startsWith("W/") || headers.firstValue("Last-Modified").isPresent();
+        return ranges && validated && headers.firstValueAsLong("Content-Length").orElse(-1L) >= MIN_SEGMENTED_SIZE;
+    }
+
+    /**
+     * Downloads into {@code file}. The first segment is read from the already-open
+     * {@code firstBody} so the initial GET isn't wasted; the rest are Range requests
+     * guarded by {@code validator} (If-Range) so a file that changes mid-way fails
+     * rather than being stitched together from two versions. All segments draw on the
+     * same {@code throttle}, so splitting a file doesn't multiply its bandwidth share.
+     * Returns false without reading the body when no extra connection is free right now.
+     */
+    public boolean download(String url, String validator, long length, InputStream firstBody, Path file,
+                            Throttle throttle) throws IOException {
+        if (validator == null) {
+            return false;
+        }
+        String host = HttpTransport.toUri(url).getHost();
+        int wanted = (int) Math.max(2, Math.min(MAX_SEGMENTS, length / MIN_SEGMENT_SIZE));
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 1; i < wanted; i++) {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire(host != null ? host : "unknown");
+            if (permit == null) {
+                break;
+            }
+            permits.add(permit);
+        }
+        if (permits.isEmpty()) {
+            return false;
+        }
+
+        int segments = permits.size() + 1;
+        long segmentSize = (length + segments - 1) / segments;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<long[]> inline = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Preallocate so every segment can write at its own position
+            channel.write(ByteBuffer.wrap(new byte[1]), length - 1);
+
+            for (int i = 1; i < segments; i++) {
+                long start = i * segmentSize;
+                long end = Math.min(length, start + segmentSize) - 1;
+                AdaptiveConcurrencyLimiter.Permit permit = permits.set(i - 1, null);
+                CompletableFuture<Void> future = scheduler.trySubmit(() -> {
+                    fetchRange(url, validator, start, end, channel, throttle);
+                    return null;
+                });
+                if (future == null) {
+                    // Transfer tier full: this thread fetches the range after its own
+                    permit.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+                    inline.add(new long[] {start, end});
+                    continue;
+                }
+                future.whenComplete((ignored, error) -> permit.release(error == null
+                    ? AdaptiveConcurrencyLimiter.Outcome.SUCCESS : AdaptiveConcurrencyLimiter.classify(error)));
+                futures.add(future);
+            }
+
+            try {
+                long written = copyRange(firstBody, channel, 0, Math.min(length, segmentSize) - 1, url, throttle);
+                if (written < segmentSize && written < length) {
+                    fetchRange(url, validator, written, Math.min(length, segmentSize) - 1, channel, throttle);
+                }
+                for (long[] range : inline) {
+                    fetchRange(url, validator, range[0], range[1], channel, throttle);
+                }
+                for (CompletableFuture<Void> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Segmented download interrupted", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+            for (AdaptiveConcurrencyLimiter.Permit permit : permits) {
+                if (permit != null) {
+                    permit.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED); // never submitted
+                }
+            }
+        }
+        return true;
+    }
+
+    private void fetchRange(String url, String validator, long start, long end, FileChannel channel,
+                            Throttle throttle) throws IOException {
+        long position = start;
+        IOException lastException = null;
+
+        for (int attempt = 0; attempt <= SEGMENT_RETRIES && position <= end; attempt++) {
+            HttpRequest request = transport.newRequest(url).GET()
+                .header("Range", "bytes=" + position + "-" + end)
+                .header("If-Range", validator)
+                .build();
+            HttpResponse<InputStream> response;
+            try {
+                response = transport.client().send(request, transport.streamingBody());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Segment download interrupted", e);
+            } catch (IOException e) {
+                if (MultiThreadedPDFDownloader.isInterruption(e)) {
+                    throw e;
+                }
+                lastException = e;
+                continue;
+            }
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != HttpResponses.HTTP_PARTIAL_CONTENT) {
+                    // 200 means the file changed (If-Range failed) or ranges aren't honoured
+                    HttpResponses.check(response.statusCode(), response.headers(), response.uri());
+                    throw new IOException("Range request returned HTTP " + response.statusCode() + ": " + url);
+                }
+                if (HttpResponses.rangeStart(response.headers()) != position) {
+                    throw new IOException("Unexpected Content-Range " + response.headers().firstValue("Content-Range")
+                        .orElse("(none)") + " for bytes " + position + "-" + end + ": " + url);
+                }
+                try {
+                    position += copyRange(body, channel, position, end, null, throttle);
+                } catch (IOException e) {
+                    if (MultiThreadedPDFDownloader.isInterruption(e)) {
+                        throw e;
+                    }
+                    lastException = e;
+                }
+            }
+        }
+
+        if (position <= end) {
+            throw new IOException("Segment " + start + "-" + end + " incomplete", lastException);
+        }
+    }
+
+    /** Copies up to end (inclusive) at the given position; returns bytes written, stopping early on EOF. */
+    private long copyRange(InputStream in, FileChannel channel, long position, long end, String pdfSource,
+                           Throttle throttle) throws IOException {
+        ChannelCopy copy = new ChannelCopy(Channels.newChannel(in), channel, position).throttle(throttle);
+        if (pdfSource != null) {
+            copy.expectPdfHeader(pdfSource);
+        }
+        try {
+            return copy.run(end - position + 1);
+        } catch (NotPdfException e) {
+            throw e;
+        } catch (IOException e) {
+            // A cancelled transfer stops here; the body stream may have cleared the interrupt
+            if (copy.transferred() == 0 || MultiThreadedPDFDownloader.isInterruption(e)) {
+                throw e;
+            }
+            // Keep what arrived; the caller continues from the new position
+            return copy.transferred();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package org.pdf.downloader.core;
+
+import org.pdf.downloader.model.SitemapFilter;
+import org.pdf.downloader.observer.DownloadObserver;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Lists a site's documents from robots.txt and its sitemaps instead of crawling HTML:
+ * {@code Sitemap:} lines in robots.txt (or {@code /sitemap.xml} when there are none)
+ * are read with a streaming StAX parser, sitemap indexes are followed, gzipped
+ * sitemaps are inflated on the fly, and every {@code <url>} entry passing the
+ * {@link SitemapFilter} is handed to the sink as soon as it is parsed.
+ */
+public class SitemapDiscovery {
+
+    /** Receives accepted entries; returning false stops discovery. */
+    @FunctionalInterface
+    public interface EntrySink {
+        boolean accept(String url, Instant lastModified) throws InterruptedException;
+    }
+
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(30);
+    private static final String XML_ACCEPT = "application/xml,text/xml,application/x-gzip,*/*;q=0.8";
+    /** Guards against index loops and runaway sitemap trees. */
+    private static final int MAX_SITEMAPS = 1000;
+    private static final int MAX_ROBOTS_LINES = 10_000;
+
+    private final HttpTransport transport;
+    private final DownloadObserver observer;
+    private final XMLInputFactory xmlFactory;
+    private int requests;
+    private long entries;
+    private long accepted;
+
+    public SitemapDiscovery(HttpTransport transport, DownloadObserver observer) {
+        this.transport = transport;
+        this.observer = observer;
+        this.xmlFactory = XMLInputFactory.newInstance();
+        // Sitemaps have no business declaring entities; refuse DTDs (XXE)
+        xmlFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Reads the sitemaps of {@code siteUrl}'s origin. Returns the number of sitemaps that
+     * could be read; 0 means the site publishes none and the caller should crawl instead.
+     */
+    public int discover(String siteUrl, SitemapFilter filter, EntrySink sink) throws InterruptedException {
+        String origin;
+        try {
+            origin = originOf(siteUrl);
+        } catch (IOException e) {
+            observer.onError("Sitemap discovery: " + e.getMessage());
+            return 0;
+        }
+        Deque<String> queue = new ArrayDeque<>(robotsSitemaps(origin));
+        if (queue.isEmpty()) {
+            queue.add(origin + "/sitemap.xml");
+        }
+        Set<String> seen = new HashSet<>(queue);
+        int read = 0;
+        while (!queue.isEmpty() && seen.size() <= MAX_SITEMAPS) {
+            String sitemap = queue.poll();
+            try {
+                List<String> children = readSitemap(sitemap, filter, sink);
+                if (children == null) {
+                    break; // sink asked to stop
+                }
+                read++;
+                for (String child : children) {
+                    if (seen.add(child)) {
+                        queue.add(child);
+                    }
+                }
+            } catch (IOException | XMLStreamException e) {
+                observer.onError("Sitemap skipped: " + sitemap + " - " + e.getMessage());
+            }
+        }
+        return read;
+    }
+
+    public String report() {
+        return "Sitemap discovery: " + requests + " requests, " + entries + " entries, " + accepted + " accepted";
+    }
+
+    /** {@code Sitemap:} URLs from robots.txt; empty when there is none or it can't be read. */
+    private List<String> robotsSitemaps(String origin) throws InterruptedException {
+        List<String> sitemaps = new ArrayList<>();
+        try {
+            HttpResponse<InputStream> response = get(origin + "/robots.txt", "text/plain,*/*");
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                if (response.statusCode() != 200) {
+                    return sitemaps;
+                }
+                String line;
+                for (int i = 0; i < MAX_ROBOTS_LINES && (line = reader.readLine()) != null; i++) {
+                    int colon = line.indexOf(':');
+                    if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("sitemap")) {
+                        String url = line.substring(colon + 1).trim();
+                        if (!url.isEmpty()) {
+                            sitemaps.add(url);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            observer.onError("robots.txt unavailable for " + origin + " - " + e.getMessage());
+        }
+        return sitemaps;
+    }
+
+    /**
+     * Streams one sitemap: entries go to the sink, child sitemaps of an index are
+     * returned. Returns null when the sink stopped discovery.
+     */
+    private List<String> readSitemap(String url, SitemapFilter filter, EntrySink sink)
+            throws IOException, XMLStreamException, InterruptedException {
+        HttpResponse<InputStream> response = get(url, XML_ACCEPT);
+        try (InputStream body = decompress(response.body())) {
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode());
+            }
+            List<String> children = new ArrayList<>();
+            XMLStreamReader xml = xmlFactory.createXMLStreamReader(body);
+            try {
+                String loc = null;
+                Instant lastmod = null;
+                while (xml.hasNext()) {
+                    int event = xml.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = xml.getLocalName();
+                        if (name.equals("url") || name.equals("sitemap")) {
+                            loc = null;
+                            lastmod = null;
+                        } else if (name.equals("loc")) {
+                            loc = xml.getElementText().trim();
+                        } else if (name.equals("lastmod")) {
+                            lastmod = parseLastmod(xml.getElementText());
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && loc != null) {
+                        String name = xml.getLocalName();
+                        if (name.equals("sitemap")) {
+                            // An index's lastmod says when the child last changed: skip unchanged ones
+                            if (isRecent(lastmod, filter)) {
+                                children.add(loc);
+                            }
+                        } else if (name.equals("url")) {
+                            entries++;
+                            if (accepts(loc, lastmod, filter)) {
+                                accepted++;
+                                if (!sink.accept(loc, lastmod)) {
+                                    return null;
+                                }
+                            }
+                        }
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+            return children;
+        }
+    }
+
+    private static boolean accepts(String url, Instant lastmod, SitemapFilter filter) {
+        boolean matches = filter.getPattern() != null
+            ? filter.getPattern().matcher(url).find()
+            : UrlCanonicalizer.hasPdfPath(url);
+        return matches && isRecent(lastmod, filter);
+    }
+
+    private static boolean isRecent(Instant lastmod, SitemapFilter filter) {
+        return filter.getModifiedSince() == null || lastmod == null || !lastmod.isBefore(filter.getModifiedSince());
+    }
+
+    /** Inflates gzip bodies (sitemap.xml.gz) detected by their magic, whatever the headers say. */
+    private static InputStream decompress(InputStream body) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(body);
+        in.mark(2);
+        int b1 = in.read();
+        int b2 = in.read();
+        in.reset();
+        return b1 == 0x1f && b2 == 0x8b ? new GZIPInputStream(in) : in;
+    }
+
+    private HttpResponse<InputStream> get(String url, String accept) throws IOException, InterruptedException {
+        requests++;
+        HttpRequest request = transport.newRequest(url)
+            .setHeader("Accept", accept)
+            .timeout(FETCH_TIMEOUT)
+            .GET()
+            .build();
+        return transport.client().send(request, transport.streamingBody());
+    }
+
+    /**
+     * W3C datetime as used by sitemaps: {@code 2024-05-01}, {@code 2024-05-01T10:00Z},
+     * {@code 2024-05-01T10:00:00+05:30}. Null when blank or unparseable.
+     */
+    public static Instant parseLastmod(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String text = value.trim();
+        try {
+            if (text.length() == 10) {
+                return LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toInstant();
+            }
+            return OffsetDateTime.parse(text).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String originOf(String url) throws IOException {
+        URI uri = HttpTransport.toUri(url);
+        if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+            throw new IOException("Not an absolute URL: " + url);
+        }
+        return uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getRawAuthority();
+    }
+}
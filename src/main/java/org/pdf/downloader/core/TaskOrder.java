@@ -0,0 +1,47 @@
+package org.pdf.downloader.core;
+
+import org.pdf.downloader.model.DownloadTask;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Order in which {@link EnhancedDownloadManager} starts a job's transfers.
+ */
+public enum TaskOrder {
+    /** As discovered (page order). */
+    FIFO,
+    /** Biggest files first: the long transfers overlap the rest, so the job ends soonest. */
+    LONGEST_FIRST,
+    /** Smallest files first: the most files are finished early (lowest mean time-to-file). */
+    SHORTEST_FIRST;
+
+    /** Lenient parse for request parameters ("longest", "shortest-first"...); anything unknown means FIFO. */
+    public static TaskOrder from(String value) {
+        if (value == null) {
+            return FIFO;
+        }
+        String v = value.trim().toLowerCase(Locale.ROOT).replace('-', '_');
+        if (v.equals("longest") || v.equals("longest_first")) {
+            return LONGEST_FIRST;
+        }
+        if (v.equals("shortest") || v.equals("shortest_first")) {
+            return SHORTEST_FIRST;
+        }
+        return FIFO;
+    }
+
+    /** Tasks of known size in this order; unknown sizes (-1) come after all known ones. */
+    Comparator<DownloadTask> comparator() {
+        Comparator<DownloadTask> bySize = Comparator.comparingLong(DownloadTask::getExpectedSize);
+        Comparator<DownloadTask> known = this == LONGEST_FIRST ? bySize.reversed() : bySize;
+        return (a, b) -> {
+            boolean unknownA = a.getExpectedSize() < 0;
+            boolean unknownB = b.getExpectedSize() < 0;
+            if (unknownA || unknownB) {
+                return Boolean.compare(unknownA, unknownB);
+            }
+            return known.compare(a, b);
+        };
+    }
+}
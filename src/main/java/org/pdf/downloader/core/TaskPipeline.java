@@ -0,0 +1,127 @@
+package org.pdf.downloader.core;
+
+import org.pdf.downloader.model.DownloadTask;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded hand-off between discovery and downloads. Discovery publishes tasks as it
+ * finds them while the download side consumes; when downloads fall behind the queue
+ * fills and {@link #publish} blocks, so a slow disk or network slows the crawl down
+ * instead of piling tasks up in memory. Each task passes the admission check on the
+ * way in, so only tasks that will be requested take a place in the queue.
+ */
+public class TaskPipeline {
+
+    private static final DownloadTask END = new DownloadTask("", "", "");
+    private static final long OFFER_POLL_MS = 100;
+
+    private final BlockingQueue<DownloadTask> queue;
+    private final UnaryOperator<DownloadTask> admit;
+    private final AtomicInteger published = new AtomicInteger();
+    private volatile boolean aborted;
+    private volatile boolean drained;
+    private volatile Runnable onOffer = () -> { };
+
+    public TaskPipeline(int capacity) {
+        this(capacity, UnaryOperator.identity());
+    }
+
+    /**
+     * @param admit pre-flight run on the publishing thread; returns the task to queue or
+     *              null when it needs no download
+     */
+    public TaskPipeline(int capacity, UnaryOperator<DownloadTask> admit) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.admit = admit;
+    }
+
+    /**
+     * Runs {@code listener} on the publishing thread after each task is queued and after the
+     * end is, so a consumer using {@link #poll} can sleep until there is news.
+     */
+    public void onOffer(Runnable listener) {
+        this.onOffer = listener;
+    }
+
+    /**
+     * Blocks while the queue is full. Returns false once the consumer has aborted, in
+     * which case discovery should stop. A task the admission check drops counts as
+     * published but is never queued.
+     */
+    public boolean publish(DownloadTask task) throws InterruptedException {
+        if (aborted) {
+            return false;
+        }
+        published.incrementAndGet();
+        DownloadTask admitted = admit.apply(task);
+        if (admitted == null) {
+            return true;
+        }
+        while (!aborted) {
+            if (queue.offer(admitted, OFFER_POLL_MS, TimeUnit.MILLISECONDS)) {
+                onOffer.run();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Discovery is finished; the consumer drains what is queued and then sees the end. */
+    public void close() {
+        try {
+            while (!aborted) {
+                if (queue.offer(END, OFFER_POLL_MS, TimeUnit.MILLISECONDS)) {
+                    onOffer.run();
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+        }
+    }
+
+    /** Consumer gave up: unblocks and stops the producer. */
+    public void abort() {
+        aborted = true;
+        queue.clear();
+    }
+
+    /** Next task, or null once discovery has closed the pipeline and everything was taken. */
+    public DownloadTask take() throws InterruptedException {
+        DownloadTask task = queue.take();
+        if (task == END) {
+            queue.offer(END); // stays closed for any further take()
+            return null;
+        }
+        return task;
+    }
+
+    /**
+     * Next task if one is queued right now, otherwise null; {@link #isDrained} tells an
+     * empty moment from the end.
+     */
+    public DownloadTask poll() {
+        DownloadTask task = queue.poll();
+        if (task == END) {
+            drained = true;
+            queue.offer(END);
+            return null;
+        }
+        return task;
+    }
+
+    /** True once {@link #poll} has reached the end of a closed pipeline. */
+    public boolean isDrained() {
+        return drained;
+    }
+
+    public int published() {
+        return published.get();
+    }
+}
@@ -0,0 +1,144 @@
+package org.pdf.downloader.core;
+
+import org.pdf.downloader.model.DownloadTask;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Learns how big a task's transfer will be, cheapest source first:
+ * <ol>
+ *   <li>a revalidation – expected to end in a 304, so about nothing;</li>
+ *   <li>the size this directory's manifest recorded last time;</li>
+ *   <li>the size of the content store's copy of the URL;</li>
+ *   <li>the Content-Length of a HEAD request, a few at a time per job, each holding a
+ *       permit of the host's concurrency limit; skipped for a host whose circuit isn't closed.</li>
+ * </ol>
+ * Never fails: a size that can't be learned stays -1 (unknown).
+ */
+public class TaskSizer {
+
+    private static final Duration HEAD_TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpTransport transport;
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final DownloadManifest manifest;
+    private final ContentStore contentStore;
+    private final int maxHeads;
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+    private int headsRunning;
+    private final AtomicLong fromHistory = new AtomicLong();
+    private final AtomicLong fromHead = new AtomicLong();
+    private final AtomicLong unknown = new AtomicLong();
+
+    /** @param contentStore may be null */
+    public TaskSizer(HttpTransport transport, CircuitBreaker circuitBreaker, AdaptiveConcurrencyLimiter limiter,
+                     DownloadManifest manifest, ContentStore contentStore, int maxHeads) {
+        this.transport = transport;
+        this.circuitBreaker = circuitBreaker;
+        this.limiter = limiter;
+        this.manifest = manifest;
+        this.contentStore = contentStore;
+        this.maxHeads = Math.max(1, maxHeads);
+    }
+
+    /** The task with its expected size set; completes once the size is known or given up on. */
+    public CompletableFuture<DownloadTask> size(DownloadTask task) {
+        if (task.isConditional()) {
+            return CompletableFuture.completedFuture(task.withExpectedSize(0));
+        }
+        long known = knownSize(task.getUrl());
+        if (known >= 0) {
+            fromHistory.incrementAndGet();
+            return CompletableFuture.completedFuture(task.withExpectedSize(known));
+        }
+        return head(task.getUrl()).thenApply(length -> {
+            (length >= 0 ? fromHead : unknown).incrementAndGet();
+            return task.withExpectedSize(length);
+        });
+    }
+
+    public String report() {
+        return "Task sizes: " + fromHistory.get() + " from earlier runs, " + fromHead.get() + " from HEAD, "
+            + unknown.get() + " unknown";
+    }
+
+    private long knownSize(String url) {
+        DownloadManifest.Entry entry = manifest.get(url);
+        if (entry != null && entry.getSize() > 0) {
+            return entry.getSize();
+        }
+        ContentStore.Record record = contentStore != null ? contentStore.lookupUrl(url) : null;
+        return record != null ? record.getSize() : -1;
+    }
+
+    /** Content-Length from a HEAD, -1 when missing or on any error; at most maxHeads in flight. */
+    private CompletableFuture<Long> head(String url) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        Runnable start = () -> send(url).whenComplete((length, error) -> {
+            result.complete(error == null ? length : -1L);
+            next();
+        });
+        synchronized (this) {
+            if (headsRunning >= maxHeads) {
+                waiting.addLast(start);
+                return result;
+            }
+            headsRunning++;
+        }
+        start.run();
+        return result;
+    }
+
+    private void next() {
+        Runnable start;
+        synchronized (this) {
+            start = waiting.pollFirst();
+            if (start == null) {
+                headsRunning--;
+                return;
+            }
+        }
+        start.run();
+    }
+
+    private CompletableFuture<Long> send(String url) {
+        String host;
+        HttpRequest request;
+        try {
+            URI uri = HttpTransport.toUri(url);
+            host = uri.getHost();
+            request = transport.newRequest(url)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(HEAD_TIMEOUT)
+                .build();
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+        // A size only orders the queue: not worth a failing host's trial request or a slot over its limit
+        if (host == null || circuitBreaker.state(host) != CircuitBreaker.State.CLOSED) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+        return limiter.acquireAsync(host).thenCompose(permit -> {
+            if (circuitBreaker.state(host) != CircuitBreaker.State.CLOSED) {
+                permit.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+                return CompletableFuture.completedFuture(-1L);
+            }
+            return transport.client().sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> permit.release(error != null
+                    ? AdaptiveConcurrencyLimiter.classify(error)
+                    : response.statusCode() == 429 || response.statusCode() == 503
+                        ? AdaptiveConcurrencyLimiter.Outcome.THROTTLED : AdaptiveConcurrencyLimiter.Outcome.IGNORED))
+                .thenApply(response -> response.statusCode() / 100 == 2
+                    ? response.headers().firstValueAsLong("Content-Length").orElse(-1L) : -1L);
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package org.pdf.downloader.core;
+
+/**
+ * Pacing hook for byte-copy loops: reserve bandwidth for a chunk and get back how long
+ * to wait before moving it. Reservations are granted in arrival order, so tasks that
+ * copy chunk by chunk share a limited budget evenly.
+ */
+@FunctionalInterface
+public interface Throttle {
+
+    Throttle NONE = new Throttle() {
+        @Override
+        public long reserve(long bytes) {
+            return 0L;
+        }
+
+        @Override
+        public boolean isActive() {
+            return false;
+        }
+    };
+
+    /** Reserves {@code bytes}; returns nanoseconds the caller should wait before sending/writing them. */
+    long reserve(long bytes);
+
+    /** Whether any budget currently limits the rate; may change while a copy runs. */
+    default boolean isActive() {
+        return true;
+    }
+}
@@ -0,0 +1,63 @@
+package org.pdf.downloader.core;
+
+/**
+ * Token bucket in bytes per second, adjustable at runtime. Reservations may overdraw
+ * the bucket; the caller then waits for the deficit to refill, which queues concurrent
+ * callers in arrival order. A rate of 0 or less means unlimited, and reservations
+ * against an unlimited bucket return without taking the lock.
+ */
+public class TokenBucket implements Throttle {
+
+    private static final long MIN_BURST = 64 * 1024;
+
+    private volatile long bytesPerSecond;
+    private double burst;
+    private double available;
+    private long lastRefill = System.nanoTime();
+
+    public TokenBucket(long bytesPerSecond) {
+        setRate(bytesPerSecond);
+    }
+
+    public long getRate() {
+        return bytesPerSecond;
+    }
+
+    /** Changes the rate; takes effect for the next reservation. */
+    public synchronized void setRate(long bytesPerSecond) {
+        refill();
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        // Quarter-second burst keeps small files snappy without letting one task hog the link
+        this.burst = Math.max(MIN_BURST, this.bytesPerSecond / 4.0);
+        this.available = Math.min(available, burst);
+    }
+
+    @Override
+    public long reserve(long bytes) {
+        if (bytesPerSecond <= 0) {
+            return 0;
+        }
+        synchronized (this) {
+            long rate = bytesPerSecond;
+            if (rate <= 0) {
+                return 0;
+            }
+            refill();
+            available -= bytes;
+            return available >= 0 ? 0 : (long) (-available * 1_000_000_000L / rate);
+        }
+    }
+
+    @Override
+    public boolean isActive() {
+        return bytesPerSecond > 0;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (bytesPerSecond > 0) {
+            available = Math.min(burst, available + (now - lastRefill) * (double) bytesPerSecond / 1_000_000_000L);
+        }
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,133 @@
+package org.pdf.downloader.core;
+
+import org.pdf.downloader.model.DownloadTask;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The ways a download can finish without transferring a body, shared by both engines
+ * so switching engines never changes which files are fetched:
+ * <ul>
+ *   <li>before any request – the file is already on disk, or the content store holds a
+ *       fresh copy of the URL;</li>
+ *   <li>on the response headers – a 304 for a revalidated file or for a stored copy
+ *       due for a check, or a 200 whose origin, ETag and length match a stored blob.</li>
+ * </ul>
+ */
+public class TransferShortcuts {
+
+    /** Optional shared blob store; null leaves only the on-disk and revalidation shortcuts. */
+    private final ContentStore store;
+
+    public TransferShortcuts(ContentStore store) {
+        this.store = store;
+    }
+
+    /** Entry for a task that needs no request at all, or null. */
+    public DownloadManifest.Entry beforeRequest(DownloadTask task, Path target) throws IOException {
+        // An existing file (not being revalidated) is kept as-is
+        if (!task.isConditional() && Files.exists(target) && Files.size(target) > 0) {
+            return entry(task, target, null, null);
+        }
+        // Fetched by an earlier job: link the stored blob instead of downloading again
+        ContentStore.Record known = known(task);
+        if (known != null && store.isFresh(known)) {
+            store.materialize(known.getHash(), target);
+            return entry(task, target, known.getEtag(), known.getLastModified());
+        }
+        return null;
+    }
+
+    /** The store's record for the task's URL when a 304 on it would let us link it, or null. */
+    public ContentStore.Record known(DownloadTask task) {
+        return store != null && !task.isConditional() ? store.lookupUrl(task.getUrl()) : null;
+    }
+
+    /**
+     * Conditional headers for a fresh request: the task's own validators when it is a
+     * revalidation, otherwise those of a stored copy due for a check.
+     */
+    public void addConditions(HttpRequest.Builder request, DownloadTask task, ContentStore.Record known) {
+        if (task.isConditional()) {
+            if (task.getIfNoneMatch() != null) request.header("If-None-Match", task.getIfNoneMatch());
+            if (task.getIfModifiedSince() != null) request.header("If-Modified-Since", task.getIfModifiedSince());
+        } else if (known != null) {
+            if (known.getEtag() != null) request.header("If-None-Match", known.getEtag());
+            if (known.getLastModified() != null) request.header("If-Modified-Since", known.getLastModified());
+        }
+    }
+
+    /**
+     * Whether a response to a fresh (non-Range) request must have its body written. Only
+     * looks things up, so it can run where no I/O should happen (choosing a body subscriber).
+     */
+    public boolean needsBody(DownloadTask task, Path target, int status, HttpHeaders headers,
+                             ContentStore.Record known) {
+        if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            return !(task.isConditional() && Files.exists(target) || known != null);
+        }
+        return status != HttpURLConnection.HTTP_OK || sameContent(task, headers) == null;
+    }
+
+    /**
+     * Finishes a fresh request without its body when {@link #needsBody} said so: confirms
+     * the file on disk or the stored copy, or links the blob with the same content. Null
+     * when the body is needed after all.
+     */
+    public DownloadManifest.Entry withoutBody(DownloadTask task, Path target, int status, HttpHeaders headers,
+                                              ContentStore.Record known) throws IOException {
+        if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            if (task.isConditional() && Files.exists(target)) {
+                // Copy on disk is current; nothing to transfer
+                return entry(task, target, task.getIfNoneMatch(), task.getIfModifiedSince());
+            }
+            if (known != null) {
+                store.touch(known);
+                store.materialize(known.getHash(), target);
+                return entry(task, target, known.getEtag(), known.getLastModified());
+            }
+            return null;
+        }
+        String sameContent = status == HttpURLConnection.HTTP_OK ? sameContent(task, headers) : null;
+        if (sameContent == null) {
+            return null;
+        }
+        // Same origin, ETag and length already stored from another URL: drop the body and link
+        String etag = headers.firstValue("ETag").orElse(null);
+        String lastModified = headers.firstValue("Last-Modified").orElse(null);
+        store.adopt(sameContent, target, task.getUrl(), etag, lastModified);
+        return entry(task, target, etag, lastModified);
+    }
+
+    /** Moves a finished file into the content store (hashing it now if it wasn't hashed in-stream). */
+    public void store(DownloadTask task, Path target, String hash, String etag, String lastModified)
+            throws IOException {
+        if (store == null) {
+            return;
+        }
+        store.ingest(target, hash != null ? hash : ContentStore.hashFile(target), task.getUrl(), etag, lastModified);
+    }
+
+    public boolean hasStore() {
+        return store != null;
+    }
+
+    public static DownloadManifest.Entry entry(DownloadTask task, Path target, String etag, String lastModified)
+            throws IOException {
+        return new DownloadManifest.Entry(task.getUrl(), task.getFileName(), Files.size(target),
+            etag, lastModified, System.currentTimeMillis());
+    }
+
+    private String sameContent(DownloadTask task, HttpHeaders headers) {
+        if (store == null) {
+            return null;
+        }
+        return store.lookupValidator(task.getUrl(), headers.firstValue("ETag").orElse(null),
+            headers.firstValueAsLong("Content-Length").orElse(-1L));
+    }
+}
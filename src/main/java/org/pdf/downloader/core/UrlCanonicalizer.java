@@ -0,0 +1,259 @@
+package org.pdf.downloader.core;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Canonical form of a URL for duplicate detection, never used for the request itself.
+ * Applies RFC 3986 normalization (lower-case scheme and host, upper-case percent
+ * escapes, unreserved characters decoded, dot segments removed, default port dropped),
+ * percent-encodes raw spaces and non-ASCII, drops the fragment and strips tracking
+ * query parameters. A trailing slash is dropped too, except for the root path.
+ *
+ * <p>Tracking parameters are matched by name, case-insensitively; an entry ending in
+ * {@code *} matches a prefix. The default list can be extended with the
+ * {@code PDF_TRACKING_PARAMS} environment variable (comma separated).
+ */
+public class UrlCanonicalizer {
+
+    public static final List<String> DEFAULT_TRACKING_PARAMS = Arrays.asList(
+        "utm_*", "fbclid", "gclid", "dclid", "msclkid", "mc_cid", "mc_eid", "_ga", "_gl", "yclid", "igshid", "ref_src");
+
+    public static final UrlCanonicalizer DEFAULT = new UrlCanonicalizer(defaultTrackingParams());
+
+    private static final String HEX = "0123456789ABCDEF";
+
+    private final Set<String> exactParams = new HashSet<>();
+    private final List<String> paramPrefixes = new ArrayList<>();
+
+    public UrlCanonicalizer(Collection<String> trackingParams) {
+        for (String param : trackingParams) {
+            String p = param.trim().toLowerCase(Locale.ROOT);
+            if (p.endsWith("*")) {
+                paramPrefixes.add(p.substring(0, p.length() - 1));
+            } else if (!p.isEmpty()) {
+                exactParams.add(p);
+            }
+        }
+    }
+
+    /** Canonical form using {@link #DEFAULT}. */
+    public static String canonicalize(String url) {
+        return DEFAULT.apply(url);
+    }
+
+    public String apply(String url) {
+        if (url == null) {
+            return "";
+        }
+        String trimmed = stripFragment(url.trim());
+        URI uri;
+        try {
+            uri = new URI(encodeIllegal(trimmed));
+        } catch (URISyntaxException e) {
+            return stripTrailingSlash(trimmed);
+        }
+        if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+            return stripTrailingSlash(trimmed);
+        }
+
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            sb.append(normalizeEscapes(uri.getRawUserInfo())).append('@');
+        }
+        String host = uri.getHost();
+        if (host == null) {
+            sb.append(uri.getRawAuthority().toLowerCase(Locale.ROOT));
+        } else {
+            sb.append(host.toLowerCase(Locale.ROOT));
+            int port = uri.getPort();
+            boolean defaultPort = port == -1
+                || port == 80 && "http".equals(scheme)
+                || port == 443 && "https".equals(scheme);
+            if (!defaultPort) {
+                sb.append(':').append(port);
+            }
+        }
+
+        String path = removeDotSegments(normalizeEscapes(uri.getRawPath() == null ? "" : uri.getRawPath()));
+        sb.append(path.isEmpty() ? "/" : stripTrailingSlash(path));
+
+        String query = uri.getRawQuery() != null ? stripTracking(normalizeEscapes(uri.getRawQuery())) : "";
+        if (!query.isEmpty()) {
+            sb.append('?').append(query);
+        }
+        return sb.toString();
+    }
+
+    /** Canonical {@code scheme://host[:port]} of a URL (the whole canonical form when it has no authority). */
+    public static String origin(String url) {
+        String canonical = canonicalize(url);
+        int authority = canonical.indexOf("://");
+        if (authority < 0) {
+            return canonical;
+        }
+        int path = canonical.indexOf('/', authority + 3);
+        return path < 0 ? canonical : canonical.substring(0, path);
+    }
+
+    /** True when the path (query and fragment ignored) ends in .pdf. */
+    public static boolean hasPdfPath(String url) {
+        if (url == null) {
+            return false;
+        }
+        int end = url.length();
+        int query = url.indexOf('?');
+        int hash = url.indexOf('#');
+        if (query >= 0) end = Math.min(end, query);
+        if (hash >= 0) end = Math.min(end, hash);
+        return url.substring(0, end).toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
+
+    /** 64-bit FNV-1a fingerprint of an (already canonical) URL, for compact dedup sets. */
+    public static long fingerprint(String canonicalUrl) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : canonicalUrl.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private String stripTracking(String query) {
+        StringBuilder kept = new StringBuilder();
+        for (String param : query.split("&")) {
+            if (param.isEmpty()) {
+                continue;
+            }
+            int eq = param.indexOf('=');
+            String name = (eq >= 0 ? param.substring(0, eq) : param).toLowerCase(Locale.ROOT);
+            if (isTracking(name)) {
+                continue;
+            }
+            if (kept.length() > 0) {
+                kept.append('&');
+            }
+            kept.append(param);
+        }
+        return kept.toString();
+    }
+
+    private boolean isTracking(String name) {
+        if (exactParams.contains(name)) {
+            return true;
+        }
+        for (String prefix : paramPrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** RFC 3986 §5.2.4 on an absolute path. */
+    private static String removeDotSegments(String path) {
+        if (!path.contains(".")) {
+            return path;
+        }
+        Deque<String> out = new ArrayDeque<>();
+        String[] segments = path.split("/", -1);
+        for (int i = 1; i < segments.length; i++) {
+            String segment = segments[i];
+            boolean last = i == segments.length - 1;
+            if (segment.equals(".")) {
+                if (last) out.addLast("");
+            } else if (segment.equals("..")) {
+                out.pollLast();
+                if (last) out.addLast("");
+            } else {
+                out.addLast(segment);
+            }
+        }
+        return "/" + String.join("/", out);
+    }
+
+    /** Upper-cases percent escapes and decodes the ones that stand for unreserved characters. */
+    private static String normalizeEscapes(String raw) {
+        if (raw.indexOf('%') < 0) {
+            return raw;
+        }
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c == '%' && i + 2 < raw.length() && isHex(raw.charAt(i + 1)) && isHex(raw.charAt(i + 2))) {
+                int value = Character.digit(raw.charAt(i + 1), 16) * 16 + Character.digit(raw.charAt(i + 2), 16);
+                if (isUnreserved((char) value)) {
+                    sb.append((char) value);
+                } else {
+                    sb.append('%').append(HEX.charAt(value >> 4)).append(HEX.charAt(value & 0xF));
+                }
+                i += 2;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Percent-encodes spaces, non-ASCII and other characters java.net.URI rejects (as browsers do). */
+    private static String encodeIllegal(String url) {
+        StringBuilder sb = null;
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            boolean illegal = c <= ' ' || c >= 0x7f || c == '"' || c == '<' || c == '>' || c == '\\'
+                || c == '^' || c == '`' || c == '{' || c == '|' || c == '}'
+                || c == '%' && !(i + 2 < url.length() && isHex(url.charAt(i + 1)) && isHex(url.charAt(i + 2)));
+            if (illegal) {
+                if (sb == null) {
+                    sb = new StringBuilder(url.length() + 16).append(url, 0, i);
+                }
+                int end = Character.isHighSurrogate(c) && i + 1 < url.length() ? i + 2 : i + 1;
+                for (byte b : url.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                    sb.append('%').append(HEX.charAt((b >> 4) & 0xF)).append(HEX.charAt(b & 0xF));
+                }
+                i = end - 1;
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb != null ? sb.toString() : url;
+    }
+
+    private static boolean isHex(char c) {
+        return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+    }
+
+    private static boolean isUnreserved(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+            || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static String stripFragment(String url) {
+        int hash = url.indexOf('#');
+        return hash >= 0 ? url.substring(0, hash) : url;
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.length() > 1 && url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static List<String> defaultTrackingParams() {
+        List<String> params = new ArrayList<>(DEFAULT_TRACKING_PARAMS);
+        String extra = System.getenv("PDF_TRACKING_PARAMS");
+        if (extra != null) {
+            params.addAll(Arrays.asList(extra.split(",")));
+        }
+        return params;
+    }
+}
@@ -0,0 +1,183 @@
+package org.pdf.downloader.core;
+
+import org.pdf.downloader.model.WatchDelta;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Bookkeeping for one watch-mode run over a download directory. The link set of the
+ * previous run is kept in {@code .pdf-watch.tsv} (watched page and canonical link URL
+ * per line, so several pages watched into one directory keep separate sets); each
+ * link discovered now is remembered with the manifest entry it had before the run,
+ * and {@link #finish} compares those with the manifest afterwards to build the
+ * {@link WatchDelta}. The link set is only replaced after a complete discovery, so a
+ * failed crawl can't make every file look removed next time, and it is rewritten under
+ * a lock so concurrent runs into the same directory don't drop each other's sets.
+ */
+public class WatchRun {
+
+    public static final String FILE_NAME = ".pdf-watch.tsv";
+
+    private final Path file;
+    /** Canonical URL of the watched page. */
+    private final String source;
+    private final Set<String> previous;
+    private final boolean firstRun;
+    /** Canonical URL → state before this run; written by discovery, read by finish. */
+    private final Map<String, Seen> seen = new LinkedHashMap<>();
+    private volatile boolean discoveryComplete = true;
+
+    private WatchRun(Path file, String source, Set<String> previous, boolean firstRun) {
+        this.file = file;
+        this.source = source;
+        this.previous = previous;
+        this.firstRun = firstRun;
+    }
+
+    public static WatchRun start(Path downloadDir, String pageUrl) {
+        Path file = downloadDir.resolve(FILE_NAME);
+        String source = UrlCanonicalizer.canonicalize(pageUrl);
+        Set<String> previous = new HashSet<>();
+        boolean firstRun = true;
+        if (Files.exists(file)) {
+            try {
+                for (String[] line : read(file)) {
+                    // Lines without a page were written before state was kept per page
+                    if (line[0] == null || line[0].equals(source)) {
+                        previous.add(line[1]);
+                        firstRun = false;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("⚠️ Ignoring unreadable watch state " + file + ": " + e.getMessage());
+                previous.clear();
+                firstRun = true;
+            }
+        }
+        return new WatchRun(file, source, previous, firstRun);
+    }
+
+    /**
+     * Records a discovered link. {@code before} is its manifest entry at that point,
+     * {@code dispatched} whether a request is being made for it.
+     */
+    public synchronized void discovered(String url, DownloadManifest.Entry before, boolean dispatched) {
+        seen.putIfAbsent(UrlCanonicalizer.canonicalize(url), new Seen(url, before, dispatched));
+    }
+
+    /** Discovery failed or was cut short: removals can't be told apart from links not reached. */
+    public void discoveryIncomplete() {
+        discoveryComplete = false;
+    }
+
+    /** Builds the delta from the manifest after the downloads and stores this run's link set. */
+    public synchronized WatchDelta finish(DownloadManifest manifest) throws IOException {
+        List<String> added = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        int unchanged = 0;
+        int failed = 0;
+        for (Map.Entry<String, Seen> link : seen.entrySet()) {
+            Seen s = link.getValue();
+            DownloadManifest.Entry after = manifest.get(s.url);
+            if (s.dispatched && (after == null || s.before != null && after.getCheckedAt() == s.before.getCheckedAt())) {
+                failed++; // nothing new was recorded for it
+            } else if (!previous.contains(link.getKey())) {
+                added.add(s.url);
+            } else if (s.before != null && after != null && !sameContent(s.before, after)) {
+                changed.add(s.url);
+            } else {
+                unchanged++;
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        if (discoveryComplete) {
+            for (String url : previous) {
+                if (!seen.containsKey(url)) {
+                    removed.add(url);
+                }
+            }
+            save();
+        }
+        return new WatchDelta(added, changed, removed, unchanged, failed, firstRun);
+    }
+
+    private static boolean sameContent(DownloadManifest.Entry before, DownloadManifest.Entry after) {
+        return before.getSize() == after.getSize()
+            && Objects.equals(before.getEtag(), after.getEtag())
+            && Objects.equals(before.getLastModified(), after.getLastModified());
+    }
+
+    /** Replaces this page's link set, keeping the sets other pages store in the same directory. */
+    private void save() throws IOException {
+        try (LockFile lock = LockFile.acquire(file.resolveSibling(FILE_NAME + ".lock"))) {
+            List<String[]> others = new ArrayList<>();
+            if (Files.exists(file)) {
+                for (String[] line : read(file)) {
+                    if (line[0] != null && !line[0].equals(source)) {
+                        others.add(line);
+                    }
+                }
+            }
+            Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (String[] line : others) {
+                    writer.write(line[0] + "\t" + line[1]);
+                    writer.newLine();
+                }
+                for (String url : seen.keySet()) {
+                    writer.write(source + "\t" + url);
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /** (page, link) pairs; page is null on lines written before state was kept per page. */
+    private static List<String[]> read(Path file) throws IOException {
+        List<String[]> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                lines.add(tab < 0 ? new String[] {null, line.trim()}
+                    : new String[] {line.substring(0, tab), line.substring(tab + 1).trim()});
+            }
+        }
+        return lines;
+    }
+
+    private static class Seen {
+        private final String url;
+        private final DownloadManifest.Entry before;
+        private final boolean dispatched;
+
+        Seen(String url, DownloadManifest.Entry before, boolean dispatched) {
+            this.url = url;
+            this.before = before;
+            this.dispatched = dispatched;
+        }
+    }
+}
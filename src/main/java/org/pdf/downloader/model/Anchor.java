@@ -0,0 +1,46 @@
+package org.pdf.downloader.model;
+
+/**
+ * One link found by the streaming page extractor: the raw {@code href} attribute, the
+ * resolved absolute URL, the anchor's visible text and the closest heading above it.
+ */
+public class Anchor {
+    private final String href;
+    private final String absoluteUrl;
+    private final String text;
+    private final String heading;
+
+    public Anchor(String href, String absoluteUrl, String text, String heading) {
+        this.href = href;
+        this.absoluteUrl = absoluteUrl;
+        this.text = text;
+        this.heading = heading;
+    }
+
+    public String getHref() {
+        return href;
+    }
+
+    /** Absolute URL, or "" when the href couldn't be resolved (like Jsoup's absUrl). */
+    public String getAbsoluteUrl() {
+        return absoluteUrl;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /** Text of the nearest h1–h6 before the link, or "" when there is none. */
+    public String getHeading() {
+        return heading;
+    }
+
+    @Override
+    public String toString() {
+        return "Anchor{" +
+                "absoluteUrl='" + absoluteUrl + '\'' +
+                ", text='" + text + '\'' +
+                ", heading='" + heading + '\'' +
+                '}';
+    }
+}
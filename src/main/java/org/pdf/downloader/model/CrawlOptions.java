@@ -0,0 +1,73 @@
+package org.pdf.downloader.model;
+
+/**
+ * Limits for nested-page discovery. Depth 1 follows links on the start page only
+ * (the original behaviour); pages counts every fetched page except the start page.
+ * A probe concurrency above 0 turns on HEAD probing of links without a .pdf path.
+ */
+public class CrawlOptions {
+    public static final int DEFAULT_MAX_DEPTH = 1;
+    public static final int DEFAULT_MAX_PAGES = 500;
+    public static final int DEFAULT_CONCURRENCY = 8;
+    public static final int DEFAULT_PER_HOST_CONCURRENCY = 4;
+    /** Parallel probes when link probing is requested. */
+    public static final int DEFAULT_PROBE_CONCURRENCY = 8;
+
+    private final int maxDepth;
+    private final int maxPages;
+    private final int concurrency;
+    private final int perHostConcurrency;
+    private final int probeConcurrency;
+
+    public CrawlOptions(int maxDepth, int maxPages, int concurrency, int perHostConcurrency) {
+        this(maxDepth, maxPages, concurrency, perHostConcurrency, 0);
+    }
+
+    public CrawlOptions(int maxDepth, int maxPages, int concurrency, int perHostConcurrency, int probeConcurrency) {
+        this.maxDepth = Math.max(0, maxDepth);
+        this.maxPages = Math.max(0, maxPages);
+        this.concurrency = Math.max(1, concurrency);
+        this.perHostConcurrency = Math.max(1, perHostConcurrency);
+        this.probeConcurrency = Math.max(0, probeConcurrency);
+    }
+
+    public static CrawlOptions defaults() {
+        return new CrawlOptions(DEFAULT_MAX_DEPTH, DEFAULT_MAX_PAGES, DEFAULT_CONCURRENCY, DEFAULT_PER_HOST_CONCURRENCY);
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getPerHostConcurrency() {
+        return perHostConcurrency;
+    }
+
+    /** 0 when extensionless links are not probed. */
+    public int getProbeConcurrency() {
+        return probeConcurrency;
+    }
+
+    public boolean isProbeLinks() {
+        return probeConcurrency > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CrawlOptions{" +
+                "maxDepth=" + maxDepth +
+                ", maxPages=" + maxPages +
+                ", concurrency=" + concurrency +
+                ", perHostConcurrency=" + perHostConcurrency +
+                ", probeConcurrency=" + probeConcurrency +
+                '}';
+    }
+}
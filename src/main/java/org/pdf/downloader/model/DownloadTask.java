@@ -4,25 +4,72 @@ public class DownloadTask {
     private final String url;
     private final String fileName;
     private final String downloadDir;
-    
+    /** Validators of the copy already on disk; when set the download is a conditional GET. */
+    private final String ifNoneMatch;
+    private final String ifModifiedSince;
+    /** Bytes the transfer is expected to move, -1 when unknown; used to order the queue. */
+    private final long expectedSize;
+
     public DownloadTask(String url, String fileName, String downloadDir) {
+        this(url, fileName, downloadDir, null, null, -1);
+    }
+
+    private DownloadTask(String url, String fileName, String downloadDir,
+                         String ifNoneMatch, String ifModifiedSince, long expectedSize) {
         this.url = url;
         this.fileName = fileName;
         this.downloadDir = downloadDir;
+        this.ifNoneMatch = ifNoneMatch;
+        this.ifModifiedSince = ifModifiedSince;
+        this.expectedSize = expectedSize;
     }
-    
+
+    /**
+     * Revalidation of an existing file: same target, sent with If-None-Match /
+     * If-Modified-Since so an unchanged file costs a 304 instead of a full body.
+     */
+    public DownloadTask conditional(String fileName, String etag, String lastModified) {
+        return new DownloadTask(url, fileName, downloadDir, etag, lastModified, expectedSize);
+    }
+
+    /** Same download saved under another name (e.g. when its name belongs to another URL). */
+    public DownloadTask renamed(String fileName) {
+        return new DownloadTask(url, fileName, downloadDir, ifNoneMatch, ifModifiedSince, expectedSize);
+    }
+
+    /** Same task with a known (or estimated) size. */
+    public DownloadTask withExpectedSize(long expectedSize) {
+        return new DownloadTask(url, fileName, downloadDir, ifNoneMatch, ifModifiedSince, expectedSize);
+    }
+
     public String getUrl() {
         return url;
     }
-    
+
     public String getFileName() {
         return fileName;
     }
-    
+
     public String getDownloadDir() {
         return downloadDir;
     }
-    
+
+    public String getIfNoneMatch() {
+        return ifNoneMatch;
+    }
+
+    public String getIfModifiedSince() {
+        return ifModifiedSince;
+    }
+
+    public long getExpectedSize() {
+        return expectedSize;
+    }
+
+    public boolean isConditional() {
+        return ifNoneMatch != null || ifModifiedSince != null;
+    }
+
     @Override
     public String toString() {
         return "DownloadTask{" +
@@ -31,4 +78,4 @@ public class DownloadTask {
                 ", downloadDir='" + downloadDir + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package org.pdf.downloader.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What discovery needs from a page, without its DOM: the links plus the title,
+ * h1–h3 texts and meta description/keywords that the context resolver looks at.
+ */
+public class PageLinks {
+    private final String url;
+    private String title = "";
+    private final List<String> headings = new ArrayList<>();
+    private final List<String> metaContents = new ArrayList<>();
+    private final List<Anchor> anchors = new ArrayList<>();
+
+    public PageLinks(String url) {
+        this.url = url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /** h1–h3 texts in document order. */
+    public List<String> getHeadings() {
+        return headings;
+    }
+
+    /** Content of meta description / keywords tags. */
+    public List<String> getMetaContents() {
+        return metaContents;
+    }
+
+    public List<Anchor> getAnchors() {
+        return anchors;
+    }
+}
@@ -0,0 +1,39 @@
+package org.pdf.downloader.model;
+
+import java.time.Instant;
+import java.util.regex.Pattern;
+
+/**
+ * Which sitemap entries become download tasks: URLs matching {@code pattern} (any .pdf
+ * path when null) whose {@code lastmod} is not before {@code modifiedSince} (entries
+ * without a lastmod are always kept).
+ */
+public class SitemapFilter {
+    private final Pattern pattern;
+    private final Instant modifiedSince;
+
+    public SitemapFilter(Pattern pattern, Instant modifiedSince) {
+        this.pattern = pattern;
+        this.modifiedSince = modifiedSince;
+    }
+
+    public static SitemapFilter none() {
+        return new SitemapFilter(null, null);
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    public Instant getModifiedSince() {
+        return modifiedSince;
+    }
+
+    @Override
+    public String toString() {
+        return "SitemapFilter{" +
+                "pattern=" + pattern +
+                ", modifiedSince=" + modifiedSince +
+                '}';
+    }
+}
@@ -0,0 +1,46 @@
+package org.pdf.downloader.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a watch run found compared with the previous run into the same directory:
+ * links that are new, files whose validators changed (re-downloaded), links no longer
+ * published, and how many were unchanged or failed.
+ */
+public class WatchDelta {
+    private final List<String> added;
+    private final List<String> changed;
+    private final List<String> removed;
+    private final int unchanged;
+    private final int failed;
+    private final boolean firstRun;
+
+    public WatchDelta(List<String> added, List<String> changed, List<String> removed,
+                      int unchanged, int failed, boolean firstRun) {
+        this.added = new ArrayList<>(added);
+        this.changed = new ArrayList<>(changed);
+        this.removed = new ArrayList<>(removed);
+        this.unchanged = unchanged;
+        this.failed = failed;
+        this.firstRun = firstRun;
+    }
+
+    public List<String> getAdded() { return new ArrayList<>(added); }
+    public List<String> getChanged() { return new ArrayList<>(changed); }
+    public List<String> getRemoved() { return new ArrayList<>(removed); }
+    public int getUnchanged() { return unchanged; }
+    public int getFailed() { return failed; }
+    /** No previous run in this directory: everything counts as added. */
+    public boolean isFirstRun() { return firstRun; }
+
+    public boolean hasChanges() {
+        return !added.isEmpty() || !changed.isEmpty() || !removed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return added.size() + " added, " + changed.size() + " changed, " + removed.size() + " removed, "
+                + unchanged + " unchanged, " + failed + " failed" + (firstRun ? " (first run)" : "");
+    }
+}
@@ -41,6 +41,12 @@ public class ConsoleLogger implements DownloadObserver {
         taskIndex.remove(task);
     }
     
+    @Override
+    public void onTaskSkipped(DownloadTask task, String reason) {
+        String timestamp = LocalDateTime.now().format(FORMATTER);
+        System.out.printf("[%s] ⏭️  Skipped: %s (%s)%n", timestamp, task.getFileName(), reason);
+    }
+    
     @Override
     public void onTaskError(DownloadTask task, Exception error) {
         String timestamp = LocalDateTime.now().format(FORMATTER);
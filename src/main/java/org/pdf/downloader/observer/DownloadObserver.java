@@ -7,6 +7,7 @@ public interface DownloadObserver {
     void onTasksIdentified(int taskCount);
     void onTaskStart(DownloadTask task);
     void onTaskComplete(DownloadTask task);
+    void onTaskSkipped(DownloadTask task, String reason);
     void onTaskError(DownloadTask task, Exception error);
     void onComplete(int totalTasks);
     void onError(String message);
@@ -2,8 +2,9 @@ package org.pdf.downloader.resolver;
 
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -12,8 +13,20 @@ public class AttemptContextResolver {
     private static final Pattern ATTEMPT_PATTERN = Pattern.compile("\\b(May|Nov)\\s+(\\d{4})\\b");
     
     public String resolveContext(Document document) {
+        List<String> headings = new ArrayList<>();
+        for (Element heading : document.select("h1, h2, h3")) {
+            headings.add(heading.text());
+        }
+        List<String> metaContents = new ArrayList<>();
+        for (Element meta : document.select("meta[name=description], meta[name=keywords]")) {
+            metaContents.add(meta.attr("content"));
+        }
+        return resolveContext(document.title(), headings, metaContents);
+    }
+    
+    /** Same lookup from the parts the streaming extractor collects (title, h1–h3 texts, meta contents). */
+    public String resolveContext(String title, List<String> headings, List<String> metaContents) {
         // Try to find context from page title
-        String title = document.title();
         if (title != null && !title.isEmpty()) {
             Matcher matcher = ATTEMPT_PATTERN.matcher(title);
             if (matcher.find()) {
@@ -22,9 +35,7 @@ public class AttemptContextResolver {
         }
         
         // Try to find context from headings
-        Elements headings = document.select("h1, h2, h3");
-        for (Element heading : headings) {
-            String headingText = heading.text();
+        for (String headingText : headings) {
             Matcher matcher = ATTEMPT_PATTERN.matcher(headingText);
             if (matcher.find()) {
                 return matcher.group(1) + matcher.group(2);
@@ -32,9 +43,7 @@ public class AttemptContextResolver {
         }
         
         // Try to find context from meta tags
-        Elements metaTags = document.select("meta[name=description], meta[name=keywords]");
-        for (Element meta : metaTags) {
-            String content = meta.attr("content");
+        for (String content : metaContents) {
             Matcher matcher = ATTEMPT_PATTERN.matcher(content);
             if (matcher.find()) {
                 return matcher.group(1) + matcher.group(2);
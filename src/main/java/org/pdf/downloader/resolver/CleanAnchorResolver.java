@@ -32,6 +32,11 @@ public class CleanAnchorResolver implements FileNameResolver {
     
     @Override
     public String resolveFileName(Element linkElement, String context) {
+        return resolveFileName(linkElement.text(), linkElement.attr("href"), context);
+    }
+    
+    @Override
+    public String resolveFileName(String text, String href, String context) {
         if (isFirstCall) {
             System.out.println("🚀 Starting Enhanced ICAI PDF Downloader...");
             isFirstCall = false;
@@ -39,8 +44,7 @@ public class CleanAnchorResolver implements FileNameResolver {
         
         processedCount++;
         
-        String linkText = linkElement.text().trim();
-        String href = linkElement.attr("href");
+        String linkText = text.trim();
         
         System.out.println("🔍 Processing: " + linkText);
         
@@ -101,6 +105,11 @@ public class CleanAnchorResolver implements FileNameResolver {
         }
     }
     
+    @Override
+    public void reserve(String fileName) {
+        tracker.reserve(fileName);
+    }
+    
     public void onDownloadComplete(String downloadDir, int successCount) {
         try {
             if (successCount > 0) {
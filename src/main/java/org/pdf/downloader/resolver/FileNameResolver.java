@@ -1,7 +1,27 @@
 package org.pdf.downloader.resolver;
 
 import org.jsoup.nodes.Element;
+import org.pdf.downloader.model.Anchor;
 
 public interface FileNameResolver {
     String resolveFileName(Element linkElement, String context);
-}
\ No newline at end of file
+
+    /** Same as {@link #resolveFileName(Element, String)} for a link seen without a DOM (streaming extractor). */
+    default String resolveFileName(String linkText, String href, String context) {
+        return resolveFileName(new Element("a").attr("href", href).text(linkText), context);
+    }
+
+    /** Marks a file name as taken (e.g. by a task replayed from an earlier run) so it isn't handed out again. */
+    default void reserve(String fileName) {
+    }
+
+    /**
+     * Same for an extracted anchor. The heading above the link is the most specific context
+     * a link has (e.g. the paper or group a list of PDFs sits under), so it leads the page context.
+     */
+    default String resolveFileName(Anchor anchor, String context) {
+        String heading = anchor.getHeading();
+        return resolveFileName(anchor.getText(), anchor.getHref(),
+            heading == null || heading.isEmpty() ? context : heading + " " + context);
+    }
+}
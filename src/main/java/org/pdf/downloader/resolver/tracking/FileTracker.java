@@ -7,11 +7,14 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.pdf.downloader.utils.MemoryMonitor; // ← ADD THIS IMPORT
 
 public class FileTracker {
     
     private static final int MAX_MAPPINGS = 10000; // Limit memory usage
+    private static final Pattern NUMBERED = Pattern.compile("(.+)_(\\d+)");
     
     private final Map<String, Integer> fileNameCounter = new HashMap<>();
     
@@ -39,6 +42,23 @@ public class FileTracker {
         }
     }
     
+    /**
+     * Marks a name as taken without generating it (e.g. by tasks of an earlier run), so
+     * {@link #handleDuplicates} numbers later files with the same base past it.
+     */
+    public void reserve(String fileName) {
+        String baseName = fileName.endsWith(".pdf") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        fileNameCounter.merge(baseName, 1, Math::max);
+        Matcher numbered = NUMBERED.matcher(baseName);
+        if (numbered.matches()) {
+            try {
+                fileNameCounter.merge(numbered.group(1), Integer.parseInt(numbered.group(2)), Math::max);
+            } catch (NumberFormatException ignored) {
+                // Too long to be one of ours
+            }
+        }
+    }
+    
     public void trackMapping(String shortName, String originalTitle) {
         fileMappings.put(shortName, originalTitle);
     }
@@ -1,12 +1,19 @@
 package org.pdf.downloader.server;
 
-import org.pdf.downloader.core.EnhancedDownloadManager;
+import org.pdf.downloader.core.BandwidthShaper;
+import org.pdf.downloader.core.DownloadScheduler;
+import org.pdf.downloader.server.dto.BandwidthSettings;
 import org.pdf.downloader.server.dto.DownloadRequest;
-import org.pdf.downloader.server.dto.DownloadResponse;
+import org.pdf.downloader.server.dto.JobStatus;
+import org.pdf.downloader.server.dto.SchedulerStatus;
+import org.pdf.downloader.server.dto.WatchRequest;
+import org.pdf.downloader.server.dto.WatchStatus;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.ArrayList;
+import java.net.URI;
+import java.util.List;
 
 @RestController
 @CrossOrigin(origins = "*")
@@ -14,49 +21,125 @@ import java.util.ArrayList;
 public class DownloadController {
 
     private final DownloadService service;
-    private final NotificationService notifier;
+    private final JobService jobs;
+    private final WatchService watches;
+    private final DownloadScheduler scheduler;
 
-    public DownloadController(DownloadService service, NotificationService notifier) {
+    public DownloadController(DownloadService service, JobService jobs, WatchService watches,
+                              DownloadScheduler scheduler) {
         this.service = service;
-        this.notifier = notifier;
+        this.jobs = jobs;
+        this.watches = watches;
+        this.scheduler = scheduler;
     }
 
+    /** Queues a download and returns its job at once; poll {@code GET /api/jobs/{id}} for progress. */
     @PostMapping("/download")
     public ResponseEntity<?> download(@RequestBody DownloadRequest req) {
         if (req.getUrl() == null || req.getUrl().trim().isEmpty()) {
             return ResponseEntity.badRequest().body("url is required");
         }
-        int concurrency = req.getConcurrency() != null ? Math.max(1, req.getConcurrency()) : 8;
-        int timeout = req.getTimeoutMinutes() != null ? Math.max(1, req.getTimeoutMinutes()) : 10;
-        boolean followNested = Boolean.TRUE.equals(req.getFollowNestedPages());
+        DownloadOptions options;
+        try {
+            options = DownloadOptions.from(req);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        String targetDir = service.resolveTargetDir(req.getDownloadDir());
+        DownloadJob job = jobs.submit(req.getUrl(), targetDir, options);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/jobs/" + job.getId()))
+                .body(job.status(false));
+    }
+
+    @GetMapping("/jobs")
+    public List<JobStatus> listJobs() {
+        return jobs.list();
+    }
+
+    /** State, counts and per-file results of a job. */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<JobStatus> getJob(@PathVariable("id") String id) {
+        DownloadJob job = jobs.get(id);
+        return job != null ? ResponseEntity.ok(job.status(true)) : ResponseEntity.notFound().build();
+    }
 
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<?> cancelJob(@PathVariable("id") String id) {
+        DownloadJob job = jobs.get(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!jobs.cancel(id)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Job already finished");
+        }
+        return ResponseEntity.ok(job.status(false));
+    }
+
+    /** Shared capacity: transfers in flight and queued across all jobs. */
+    @GetMapping("/scheduler")
+    public SchedulerStatus getScheduler() {
+        return new SchedulerStatus(scheduler.getMaxInFlight(), scheduler.inFlight(), scheduler.queueDepth(),
+                scheduler.getMaxJobs(), scheduler.jobsRunning());
+    }
+
+    /** Re-runs a download every {@code intervalMinutes}, fetching only new or changed PDFs each time. */
+    @PostMapping("/watch")
+    public ResponseEntity<?> watch(@RequestBody WatchRequest req) {
+        if (req.getUrl() == null || req.getUrl().trim().isEmpty()) {
+            return ResponseEntity.badRequest().body("url is required");
+        }
+        DownloadOptions options;
+        try {
+            options = DownloadOptions.from(req);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        int interval = req.getIntervalMinutes() != null ? Math.max(1, req.getIntervalMinutes()) : 60;
         try {
             String targetDir = service.resolveTargetDir(req.getDownloadDir());
-            EnhancedDownloadManager.DownloadResult result = service.runDownload(
-                    req.getUrl(),
-                    targetDir,
-                    concurrency,
-                    timeout,
-                    followNested
-            );
-
-            DownloadResponse body = new DownloadResponse(
-                    result.getSuccessCount(),
-                    result.getFailureCount(),
-                    result.getErrors() != null ? result.getErrors() : new ArrayList<>(),
-                    targetDir
-            );
-
-            // Fire-and-forget notification on server host
-            try {
-                String title = "PDF Download Complete";
-                String msg = "Saved " + body.getSuccess() + "/" + body.getTotal() + " to " + body.getDownloadDir();
-                notifier.sendCompletion(title, msg);
-            } catch (Exception ignored) {}
-
-            return ResponseEntity.ok(body);
+            return ResponseEntity.ok(watches.schedule(req.getUrl(), targetDir, options, interval));
         } catch (Exception e) {
-            return ResponseEntity.internalServerError().body("Download failed: " + e.getMessage());
+            return ResponseEntity.internalServerError().body("Watch failed: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/watch")
+    public List<WatchStatus> listWatches() {
+        return watches.list();
+    }
+
+    @GetMapping("/watch/{id}")
+    public ResponseEntity<WatchStatus> getWatch(@PathVariable("id") String id) {
+        WatchStatus status = watches.get(id);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    @DeleteMapping("/watch/{id}")
+    public ResponseEntity<Void> cancelWatch(@PathVariable("id") String id) {
+        return watches.cancel(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/bandwidth")
+    public BandwidthSettings getBandwidth() {
+        BandwidthShaper shaper = service.getBandwidthShaper();
+        return new BandwidthSettings(shaper.getGlobalRate(), shaper.getDefaultHostRate(), shaper.getHostRates());
+    }
+
+    /** Changes shared limits while jobs run; omitted fields are left as they are, 0 lifts a limit. */
+    @PutMapping("/bandwidth")
+    public BandwidthSettings setBandwidth(@RequestBody BandwidthSettings settings) {
+        BandwidthShaper shaper = service.getBandwidthShaper();
+        if (settings.getGlobalBytesPerSecond() != null) {
+            shaper.setGlobalRate(Math.max(0, settings.getGlobalBytesPerSecond()));
+        }
+        if (settings.getPerHostBytesPerSecond() != null) {
+            shaper.setDefaultHostRate(Math.max(0, settings.getPerHostBytesPerSecond()));
+        }
+        if (settings.getHosts() != null) {
+            settings.getHosts().forEach((host, rate) -> shaper.setHostRate(host, Math.max(0, rate)));
         }
+        return getBandwidth();
     }
 }
@@ -0,0 +1,187 @@
+package org.pdf.downloader.server;
+
+import org.pdf.downloader.core.EnhancedDownloadManager;
+import org.pdf.downloader.model.DownloadTask;
+import org.pdf.downloader.observer.ConsoleLogger;
+import org.pdf.downloader.observer.DownloadObserver;
+import org.pdf.downloader.server.dto.FileResult;
+import org.pdf.downloader.server.dto.JobStatus;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * One submitted download. It is also the job's observer: events are logged to the
+ * console as before and recorded per file, so {@code GET /api/jobs/{id}} can show
+ * progress while the job runs.
+ */
+public class DownloadJob implements DownloadObserver {
+
+    private final String id;
+    private final String url;
+    private final String downloadDir;
+    private final DownloadOptions options;
+    private final long submittedAt = System.currentTimeMillis();
+    private final DownloadObserver console = new ConsoleLogger();
+    /** Latest outcome per PDF URL, in the order they were first seen. */
+    private final Map<String, FileResult> files = new LinkedHashMap<>();
+    private JobState state = JobState.QUEUED;
+    private Long startedAt;
+    private Long finishedAt;
+    private int identified;
+    private String error;
+    private EnhancedDownloadManager.DownloadResult result;
+    private Future<?> future;
+
+    DownloadJob(String id, String url, String downloadDir, DownloadOptions options) {
+        this.id = id;
+        this.url = url;
+        this.downloadDir = downloadDir;
+        this.options = options;
+    }
+
+    public String getId() { return id; }
+    public String getUrl() { return url; }
+    public String getDownloadDir() { return downloadDir; }
+    public DownloadOptions getOptions() { return options; }
+
+    /** What {@link #cancel} stops: the wait for a slot, then the running download. */
+    synchronized void setFuture(Future<?> future) {
+        this.future = future;
+        if (state == JobState.CANCELLED) {
+            future.cancel(true); // cancelled while it was being started
+        }
+    }
+
+    /** False when the job was cancelled while queued. */
+    synchronized boolean start() {
+        if (state != JobState.QUEUED) {
+            return false;
+        }
+        state = JobState.RUNNING;
+        startedAt = System.currentTimeMillis();
+        return true;
+    }
+
+    synchronized void complete(EnhancedDownloadManager.DownloadResult result) {
+        if (state == JobState.RUNNING) {
+            this.result = result;
+            finish(JobState.COMPLETED, null);
+        }
+    }
+
+    synchronized void fail(String error) {
+        if (state == JobState.RUNNING) {
+            finish(JobState.FAILED, error);
+        }
+    }
+
+    synchronized void timeOut(String error) {
+        if (state == JobState.RUNNING) {
+            finish(JobState.TIMED_OUT, error);
+        }
+    }
+
+    /** Stops the job: a queued job never starts, a running one is interrupted. False once finished. */
+    synchronized boolean cancel() {
+        if (state.isFinished()) {
+            return false;
+        }
+        finish(JobState.CANCELLED, "Cancelled");
+        if (future != null) {
+            future.cancel(true);
+        }
+        return true;
+    }
+
+    synchronized boolean isFinished() {
+        return state.isFinished();
+    }
+
+    synchronized Long getFinishedAt() {
+        return finishedAt;
+    }
+
+    synchronized EnhancedDownloadManager.DownloadResult getResult() {
+        return result;
+    }
+
+    private void finish(JobState next, String error) {
+        state = next;
+        this.error = error;
+        finishedAt = System.currentTimeMillis();
+    }
+
+    /** Snapshot for the API; {@code withFiles} adds the per-file list. */
+    public synchronized JobStatus status(boolean withFiles) {
+        int downloaded = 0;
+        int skipped = 0;
+        int failed = 0;
+        for (FileResult file : files.values()) {
+            switch (file.getStatus()) {
+                case "DOWNLOADED": downloaded++; break;
+                case "SKIPPED": skipped++; break;
+                case "FAILED": failed++; break;
+                default: break;
+            }
+        }
+        return new JobStatus(id, state.name(), url, downloadDir, submittedAt, startedAt, finishedAt,
+                Math.max(identified, files.size()), downloaded, skipped, failed, error,
+                result != null ? result.getDelta() : null,
+                withFiles ? new ArrayList<>(files.values()) : null);
+    }
+
+    private synchronized void record(DownloadTask task, String status, String message) {
+        files.put(task.getUrl(), new FileResult(task.getUrl(), task.getFileName(), status, message));
+    }
+
+    @Override
+    public void onStart(String message) {
+        console.onStart(message);
+    }
+
+    @Override
+    public void onTasksIdentified(int taskCount) {
+        synchronized (this) {
+            identified = taskCount;
+        }
+        console.onTasksIdentified(taskCount);
+    }
+
+    @Override
+    public void onTaskStart(DownloadTask task) {
+        record(task, "DOWNLOADING", null);
+        console.onTaskStart(task);
+    }
+
+    @Override
+    public void onTaskComplete(DownloadTask task) {
+        record(task, "DOWNLOADED", null);
+        console.onTaskComplete(task);
+    }
+
+    @Override
+    public void onTaskSkipped(DownloadTask task, String reason) {
+        record(task, "SKIPPED", reason);
+        console.onTaskSkipped(task, reason);
+    }
+
+    @Override
+    public void onTaskError(DownloadTask task, Exception error) {
+        record(task, "FAILED", error.getMessage());
+        console.onTaskError(task, error);
+    }
+
+    @Override
+    public void onComplete(int totalTasks) {
+        console.onComplete(totalTasks);
+    }
+
+    @Override
+    public void onError(String message) {
+        console.onError(message);
+    }
+}
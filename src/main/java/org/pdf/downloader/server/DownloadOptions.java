@@ -0,0 +1,92 @@
+package org.pdf.downloader.server;
+
+import org.pdf.downloader.core.DiscoveryMode;
+import org.pdf.downloader.core.DownloadMode;
+import org.pdf.downloader.core.SitemapDiscovery;
+import org.pdf.downloader.core.TaskOrder;
+import org.pdf.downloader.model.CrawlOptions;
+import org.pdf.downloader.model.SitemapFilter;
+import org.pdf.downloader.server.dto.DownloadRequest;
+
+import java.time.Instant;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Validated job settings from a {@link DownloadRequest}, with the API defaults applied.
+ * Shared by one-off downloads and scheduled watch runs.
+ */
+public class DownloadOptions {
+    private final int concurrency;
+    private final int timeoutMinutes;
+    private final boolean followNestedPages;
+    private final DownloadMode mode;
+    private final long maxBytesPerSecond;
+    private final CrawlOptions crawlOptions;
+    private final DiscoveryMode discoveryMode;
+    private final SitemapFilter sitemapFilter;
+    private final boolean watch;
+    private final TaskOrder taskOrder;
+
+    private DownloadOptions(int concurrency, int timeoutMinutes, boolean followNestedPages, DownloadMode mode,
+                            long maxBytesPerSecond, CrawlOptions crawlOptions, DiscoveryMode discoveryMode,
+                            SitemapFilter sitemapFilter, boolean watch, TaskOrder taskOrder) {
+        this.concurrency = concurrency;
+        this.timeoutMinutes = timeoutMinutes;
+        this.followNestedPages = followNestedPages;
+        this.mode = mode;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.crawlOptions = crawlOptions;
+        this.discoveryMode = discoveryMode;
+        this.sitemapFilter = sitemapFilter;
+        this.watch = watch;
+        this.taskOrder = taskOrder;
+    }
+
+    /** @throws IllegalArgumentException with a client-facing message when a field is invalid */
+    public static DownloadOptions from(DownloadRequest req) {
+        int concurrency = req.getConcurrency() != null ? Math.max(1, req.getConcurrency()) : 8;
+        int timeout = req.getTimeoutMinutes() != null ? Math.max(1, req.getTimeoutMinutes()) : 10;
+        long maxBytesPerSecond = req.getMaxBytesPerSecond() != null ? Math.max(0, req.getMaxBytesPerSecond()) : 0;
+        CrawlOptions crawl = new CrawlOptions(
+                req.getMaxDepth() != null ? req.getMaxDepth() : CrawlOptions.DEFAULT_MAX_DEPTH,
+                req.getMaxPages() != null ? req.getMaxPages() : CrawlOptions.DEFAULT_MAX_PAGES,
+                req.getCrawlConcurrency() != null ? req.getCrawlConcurrency() : CrawlOptions.DEFAULT_CONCURRENCY,
+                CrawlOptions.DEFAULT_PER_HOST_CONCURRENCY,
+                Boolean.TRUE.equals(req.getProbeLinks()) ? CrawlOptions.DEFAULT_PROBE_CONCURRENCY : 0);
+
+        Pattern pattern;
+        try {
+            pattern = req.getSitemapPattern() != null && !req.getSitemapPattern().isBlank()
+                    ? Pattern.compile(req.getSitemapPattern()) : null;
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("sitemapPattern is not a valid regex: " + e.getDescription());
+        }
+        Instant since = SitemapDiscovery.parseLastmod(req.getModifiedSince());
+        if (since == null && req.getModifiedSince() != null && !req.getModifiedSince().isBlank()) {
+            throw new IllegalArgumentException("modifiedSince must be an ISO date or date-time");
+        }
+
+        return new DownloadOptions(concurrency, timeout, Boolean.TRUE.equals(req.getFollowNestedPages()),
+                DownloadMode.from(req.getMode()), maxBytesPerSecond, crawl,
+                DiscoveryMode.from(req.getDiscovery()), new SitemapFilter(pattern, since),
+                Boolean.TRUE.equals(req.getWatch()), TaskOrder.from(req.getOrder()));
+    }
+
+    /** Same settings as an incremental (watch) run. */
+    public DownloadOptions asWatch() {
+        return new DownloadOptions(concurrency, timeoutMinutes, followNestedPages, mode, maxBytesPerSecond,
+                crawlOptions, discoveryMode, sitemapFilter, true, taskOrder);
+    }
+
+    public int getConcurrency() { return concurrency; }
+    public int getTimeoutMinutes() { return timeoutMinutes; }
+    public boolean isFollowNestedPages() { return followNestedPages; }
+    public DownloadMode getMode() { return mode; }
+    public long getMaxBytesPerSecond() { return maxBytesPerSecond; }
+    public CrawlOptions getCrawlOptions() { return crawlOptions; }
+    public DiscoveryMode getDiscoveryMode() { return discoveryMode; }
+    public SitemapFilter getSitemapFilter() { return sitemapFilter; }
+    public boolean isWatch() { return watch; }
+    public TaskOrder getTaskOrder() { return taskOrder; }
+}
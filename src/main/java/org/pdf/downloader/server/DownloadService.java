@@ -1,7 +1,16 @@
 package org.pdf.downloader.server;
 
+import org.pdf.downloader.core.AdaptiveConcurrencyLimiter;
+import org.pdf.downloader.core.BandwidthShaper;
+import org.pdf.downloader.core.CircuitBreaker;
+import org.pdf.downloader.core.ContentStore;
+import org.pdf.downloader.core.DownloadScheduler;
 import org.pdf.downloader.core.EnhancedDownloadManager;
+import org.pdf.downloader.core.InFlightRegistry;
+import org.pdf.downloader.core.HttpTransport;
+import org.pdf.downloader.core.PageCache;
 import org.pdf.downloader.observer.ConsoleLogger;
+import org.pdf.downloader.observer.DownloadObserver;
 import org.pdf.downloader.resolver.AttemptContextResolver;
 import org.pdf.downloader.resolver.CleanAnchorResolver;
 import org.pdf.downloader.utils.DirectoryUtils;
@@ -9,7 +18,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class DownloadService {
@@ -17,9 +32,69 @@ public class DownloadService {
     @Autowired
     private NotificationService notificationService;
 
+    /** Worker threads and the global in-flight limit shared by all jobs. */
+    @Autowired
+    private DownloadScheduler scheduler;
+
+    /** One pooled HTTP client for the whole server, so keep-alive connections survive across jobs. */
+    private final HttpTransport transport = new HttpTransport();
+
+    /** Shared blob store: identical PDFs across jobs are stored once and hardlinked into each job dir. */
+    private final ContentStore contentStore = openContentStore();
+
+    /** PDFs being transferred right now, so a job scheduling one another job is fetching waits for that file. */
+    private final InFlightRegistry inFlightRegistry = new InFlightRegistry();
+
+    /** Index pages shared by all jobs; TTL from PAGE_CACHE_TTL_SECONDS (default 10 minutes, 0 = always revalidate). */
+    private final PageCache pageCache = openPageCache();
+
+    /** Per-host concurrency limits learned from 429/503s, kept across jobs; hosts start at half the global limit. */
+    private AdaptiveConcurrencyLimiter hostLimiter;
+
+    /** Per-host circuits shared by every job, so a job started after a host went down fails fast too. */
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /** Global and per-host byte-rate budgets shared by every job; adjustable at runtime via /api/bandwidth. */
+    private final BandwidthShaper bandwidthShaper = new BandwidthShaper(
+            envLong("DOWNLOAD_MAX_BYTES_PER_SEC"), envLong("DOWNLOAD_MAX_HOST_BYTES_PER_SEC"));
+
+    public BandwidthShaper getBandwidthShaper() {
+        return bandwidthShaper;
+    }
+
     public EnhancedDownloadManager.DownloadResult runDownload(String url, String downloadDir,
-                                                              int concurrency, int timeoutMinutes,
-                                                              boolean followNestedPages) throws Exception {
+                                                              DownloadOptions options) throws Exception {
+        return runDownload(url, downloadDir, options, new ConsoleLogger());
+    }
+
+    /**
+     * Runs one job on the calling thread until it finishes or times out. Interrupting the
+     * caller stops the job's workers; a timeout is reported as a {@link TimeoutException}
+     * saying how long the job ran.
+     */
+    public EnhancedDownloadManager.DownloadResult runDownload(String url, String downloadDir, DownloadOptions options,
+                                                              DownloadObserver observer) throws Exception {
+        CompletableFuture<EnhancedDownloadManager.DownloadResult> download =
+                startDownload(url, downloadDir, options, observer);
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            download.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * Starts one job on the shared scheduler and returns at once; no thread waits for it.
+     * When the job runs past its timeout the future fails with a {@link TimeoutException}
+     * saying how long it ran. A timeout or cancelling the future stops the job's work.
+     */
+    public CompletableFuture<EnhancedDownloadManager.DownloadResult> startDownload(String url, String downloadDir,
+                                                                                DownloadOptions options,
+                                                                                DownloadObserver observer) {
         // Use DirectoryUtils for secure directory resolution (Downloads folder only)
         String targetDir = DirectoryUtils.resolveDownloadDirectory(downloadDir);
         
@@ -36,28 +111,96 @@ public class DownloadService {
         EnhancedDownloadManager manager = new EnhancedDownloadManager(
                 resolver,
                 new AttemptContextResolver(),
-                new ConsoleLogger(),
+                observer,
                 dynamicThreads,
-                followNestedPages
+                options.isFollowNestedPages(),
+                transport,
+                contentStore,
+                scheduler,
+                hostLimiter(),
+                circuitBreaker
         );
+        manager.setMode(options.getMode());
+        manager.setBandwidthShaper(bandwidthShaper);
+        manager.setJobBandwidth(options.getMaxBytesPerSecond());
+        manager.setCrawlOptions(options.getCrawlOptions());
+        manager.setPageCache(pageCache);
+        manager.setInFlightRegistry(inFlightRegistry);
+        manager.setDiscoveryMode(options.getDiscoveryMode());
+        manager.setSitemapFilter(options.getSitemapFilter());
+        manager.setWatchMode(options.isWatch());
+        manager.setTaskOrder(options.getTaskOrder());
+
+        int timeoutMinutes = options.getTimeoutMinutes();
+        // Timed out or cancelled on a copy of the job's future; shutdownNow below stops the job itself
+        CompletableFuture<EnhancedDownloadManager.DownloadResult> download = manager.downloadFromUrl(url, targetDir).copy()
+                .orTimeout(timeoutMinutes, TimeUnit.MINUTES)
+                .exceptionallyCompose(error -> CompletableFuture.failedFuture(unwrap(error) instanceof TimeoutException
+                        ? new TimeoutException("Timed out after " + timeoutMinutes + " minutes") : unwrap(error)));
+        download.whenComplete((result, error) -> {
+            try {
+                if (error != null) {
+                    // Timed out or nobody waits for this job any more: stop taking tasks and interrupt transfers
+                    manager.shutdownNow();
+                } else {
+                    // Send completion notification with download data
+                    notificationService.sendDownloadCompletionNotification(result, targetDir);
+                }
+            } finally {
+                // Ensure resolver cleanup
+                resolver.performFullCleanup();
+                System.out.println("⚙️ " + scheduler.report());
+                System.out.println("🔗 " + inFlightRegistry.report());
+                System.out.println("💨 Download service cleanup completed - resources freed!");
+            }
+        });
+        return download;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    
+    /** Created on first use: the shared scheduler is injected after construction. */
+    private synchronized AdaptiveConcurrencyLimiter hostLimiter() {
+        if (hostLimiter == null) {
+            hostLimiter = new AdaptiveConcurrencyLimiter(scheduler.getMaxInFlight());
+        }
+        return hostLimiter;
+    }
 
+    private static ContentStore openContentStore() {
         try {
-            // Start and wait synchronously with timeout
-            java.util.concurrent.CompletableFuture<EnhancedDownloadManager.DownloadResult> future =
-                    manager.downloadFromUrl(url, targetDir);
-            EnhancedDownloadManager.DownloadResult result = future.get(timeoutMinutes, TimeUnit.MINUTES);
-            
-            // Send completion notification with download data
-            notificationService.sendDownloadCompletionNotification(result, targetDir);
-            
-            return result;
-        } finally {
-            // Ensure resolver cleanup
-            resolver.performFullCleanup();
-            System.out.println("💨 Download service cleanup completed - resources freed!");
+            return ContentStore.openDefault();
+        } catch (IOException e) {
+            System.err.println("⚠️ Content store unavailable, downloading without dedup: " + e.getMessage());
+            return null;
         }
     }
-    
+
+    private static PageCache openPageCache() {
+        String ttl = System.getenv("PAGE_CACHE_TTL_SECONDS");
+        try {
+            return PageCache.openDefault(ttl != null ? Duration.ofSeconds(envLong("PAGE_CACHE_TTL_SECONDS")) : PageCache.DEFAULT_TTL);
+        } catch (IOException e) {
+            System.err.println("⚠️ Page cache unavailable, fetching pages directly: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Non-negative long from the environment, 0 (unlimited) when unset or invalid. */
+    private static long envLong(String name) {
+        String value = System.getenv(name);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     /**
      * Simple estimation of file count from URL (placeholder implementation)
      */
@@ -70,39 +213,6 @@ public class DownloadService {
         return 5; // Default small download
     }
 
-    /**
-     * Compute a reasonable concurrency level dynamically based on system resources.
-     * Network-bound downloads benefit from higher parallelism than CPU cores.
-     */
-    private int computeRecommendedConcurrency() {
-        int cores = Math.max(1, Runtime.getRuntime().availableProcessors());
-
-        // Base: 3x cores for I/O bound tasks, within sane limits
-        int base = cores * 3;
-
-        // Memory pressure adjustment
-        Runtime rt = Runtime.getRuntime();
-        long max = rt.maxMemory();
-        long used = rt.totalMemory() - rt.freeMemory();
-        double usedPct = max > 0 ? (used * 1.0 / max) : 0.0;
-        if (usedPct > 0.75) {
-            base = Math.max(2, base / 2); // cut in half if high memory usage
-        }
-
-        // Env overrides
-        int upperCap = 32;
-        String envCap = System.getenv("DOWNLOAD_MAX_CONCURRENCY");
-        if (envCap != null) {
-            try { upperCap = Math.max(2, Integer.parseInt(envCap.trim())); } catch (NumberFormatException ignored) {}
-        }
-
-        int lowerCap = 4; // don't go too low unless constrained
-
-        int recommended = Math.min(upperCap, Math.max(lowerCap, base));
-        System.out.println("⚙️ Using dynamic concurrency: " + recommended + " (cores=" + cores + ")");
-        return recommended;
-    }
-
     public String resolveTargetDir(String dir) {
         String home = System.getProperty("user.home");
         // Base application folder under home
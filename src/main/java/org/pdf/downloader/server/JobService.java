@@ -0,0 +1,151 @@
+package org.pdf.downloader.server;
+
+import jakarta.annotation.PreDestroy;
+import org.pdf.downloader.core.AsyncSlots;
+import org.pdf.downloader.core.EnhancedDownloadManager;
+import org.pdf.downloader.server.dto.JobStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs download jobs in the background so API requests return at once. At most
+ * JOB_WORKERS jobs (default 4) run together; the rest wait as QUEUED. Jobs run on the
+ * shared download scheduler and a waiting job holds no thread. Finished jobs stay
+ * queryable for an hour.
+ */
+@Service
+public class JobService {
+
+    private static final long RETENTION_MILLIS = 60 * 60 * 1000L;
+
+    private final DownloadService downloads;
+    private final NotificationService notifier;
+    /** Places for running jobs, handed out oldest job first. */
+    private final AsyncSlots running = new AsyncSlots(workerCount());
+    private final Map<String, DownloadJob> jobs = new ConcurrentHashMap<>();
+
+    public JobService(DownloadService downloads, NotificationService notifier) {
+        this.downloads = downloads;
+        this.notifier = notifier;
+    }
+
+    public DownloadJob submit(String url, String downloadDir, DownloadOptions options) {
+        purgeFinished();
+        DownloadJob job = new DownloadJob(UUID.randomUUID().toString(), url, downloadDir, options);
+        CompletableFuture<Void> slot = running.acquire();
+        job.setFuture(slot); // cancelling a queued job withdraws it
+        jobs.put(job.getId(), job);
+        slot.thenRun(() -> run(job));
+        System.out.println("📥 Queued job " + job.getId() + " for " + url);
+        return job;
+    }
+
+    public DownloadJob get(String id) {
+        return jobs.get(id);
+    }
+
+    public List<JobStatus> list() {
+        List<JobStatus> statuses = new ArrayList<>();
+        for (DownloadJob job : jobs.values()) {
+            statuses.add(job.status(false));
+        }
+        return statuses;
+    }
+
+    /** False when the job is unknown or already finished. */
+    public boolean cancel(String id) {
+        DownloadJob job = jobs.get(id);
+        if (job == null || !job.cancel()) {
+            return false;
+        }
+        System.out.println("🛑 Cancelled job " + id);
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(DownloadJob::cancel);
+    }
+
+    /** Starts a job that got its slot; the slot is freed when the job ends. */
+    private void run(DownloadJob job) {
+        if (!job.start()) {
+            running.release();
+            return;
+        }
+        CompletableFuture<EnhancedDownloadManager.DownloadResult> download;
+        try {
+            download = downloads.startDownload(job.getUrl(), job.getDownloadDir(), job.getOptions(), job);
+        } catch (RuntimeException e) {
+            running.release();
+            job.fail("Download failed: " + describe(e));
+            return;
+        }
+        job.setFuture(download);
+        download.whenComplete((result, error) -> {
+            running.release();
+            finish(job, result, error);
+        });
+    }
+
+    private void finish(DownloadJob job, EnhancedDownloadManager.DownloadResult result, Throwable error) {
+        if (error == null) {
+            job.complete(result);
+            notifyCompletion(job, result);
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof CancellationException) {
+            // Cancelled; the job already says so
+        } else if (cause instanceof TimeoutException) {
+            // The service has already stopped the job's work
+            job.timeOut(cause.getMessage());
+        } else {
+            job.fail("Download failed: " + describe(cause));
+        }
+    }
+
+    private static String describe(Throwable error) {
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+
+    private void notifyCompletion(DownloadJob job, EnhancedDownloadManager.DownloadResult result) {
+        // Fire-and-forget notification on server host
+        try {
+            String msg = "Saved " + result.getSuccessCount() + "/" + result.getTotalAttempted()
+                    + " to " + job.getDownloadDir();
+            notifier.sendCompletion("PDF Download Complete", msg);
+        } catch (Exception ignored) {}
+    }
+
+    private void purgeFinished() {
+        long cutoff = System.currentTimeMillis() - RETENTION_MILLIS;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+    }
+
+    /** Jobs that run at once: JOB_WORKERS, default 4. */
+    static int workerCount() {
+        return envInt("JOB_WORKERS", 4);
+    }
+
+    private static int envInt(String name, int fallback) {
+        String value = System.getenv(name);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.pdf.downloader.server;
+
+/** Lifecycle of a download job submitted through the API. */
+public enum JobState {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    /** Ran past its timeout and was stopped. */
+    TIMED_OUT,
+    CANCELLED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED || this == TIMED_OUT || this == CANCELLED;
+    }
+}
@@ -0,0 +1,58 @@
+package org.pdf.downloader.server;
+
+import org.pdf.downloader.core.DownloadScheduler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SchedulerConfig {
+
+    /** Watch runs get coordinators of their own so they don't queue behind API jobs. */
+    private static final int WATCH_COORDINATORS = WatchService.RUNNERS;
+
+    /**
+     * Worker threads shared by every job. Transfers in flight across all jobs are capped
+     * by the recommended concurrency (DOWNLOAD_MAX_CONCURRENCY caps it); JOB_WORKERS
+     * jobs (default 4) run at once.
+     */
+    @Bean(destroyMethod = "close")
+    public DownloadScheduler downloadScheduler() {
+        DownloadScheduler scheduler = new DownloadScheduler(computeRecommendedConcurrency(),
+                JobService.workerCount() + WATCH_COORDINATORS);
+        System.out.println("⚙️ " + scheduler.report());
+        return scheduler;
+    }
+
+    /**
+     * Compute a reasonable concurrency level dynamically based on system resources.
+     * Network-bound downloads benefit from higher parallelism than CPU cores.
+     */
+    private int computeRecommendedConcurrency() {
+        int cores = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+        // Base: 3x cores for I/O bound tasks, within sane limits
+        int base = cores * 3;
+
+        // Memory pressure adjustment
+        Runtime rt = Runtime.getRuntime();
+        long max = rt.maxMemory();
+        long used = rt.totalMemory() - rt.freeMemory();
+        double usedPct = max > 0 ? (used * 1.0 / max) : 0.0;
+        if (usedPct > 0.75) {
+            base = Math.max(2, base / 2); // cut in half if high memory usage
+        }
+
+        // Env overrides
+        int upperCap = 32;
+        String envCap = System.getenv("DOWNLOAD_MAX_CONCURRENCY");
+        if (envCap != null) {
+            try { upperCap = Math.max(2, Integer.parseInt(envCap.trim())); } catch (NumberFormatException ignored) {}
+        }
+
+        int lowerCap = 4; // don't go too low unless constrained
+
+        int recommended = Math.min(upperCap, Math.max(lowerCap, base));
+        System.out.println("⚙️ Using dynamic concurrency: " + recommended + " (cores=" + cores + ")");
+        return recommended;
+    }
+}
@@ -0,0 +1,127 @@
+package org.pdf.downloader.server;
+
+import jakarta.annotation.PreDestroy;
+import org.pdf.downloader.core.EnhancedDownloadManager;
+import org.pdf.downloader.model.WatchDelta;
+import org.pdf.downloader.server.dto.WatchStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-runs registered downloads in watch mode on a fixed delay, so newly published
+ * papers are picked up without redoing full downloads. Runs never overlap for one
+ * watch; the delta of the latest run is kept for {@code GET /api/watch}. Watches live
+ * in memory and end with the server.
+ */
+@Service
+public class WatchService {
+
+    /** Watch runs that can be in progress at once. */
+    static final int RUNNERS = 2;
+
+    private final DownloadService downloads;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(RUNNERS, r -> {
+        Thread t = new Thread(r, "pdf-watch");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+
+    public WatchService(DownloadService downloads) {
+        this.downloads = downloads;
+    }
+
+    /** Registers a watch; the first run starts right away. */
+    public WatchStatus schedule(String url, String downloadDir, DownloadOptions options, int intervalMinutes) {
+        Watch watch = new Watch(UUID.randomUUID().toString().substring(0, 8), url, downloadDir,
+                options.asWatch(), intervalMinutes);
+        watch.future = scheduler.scheduleWithFixedDelay(() -> run(watch), 0, intervalMinutes, TimeUnit.MINUTES);
+        watches.put(watch.id, watch);
+        System.out.println("🔁 Watching " + url + " every " + intervalMinutes + " min (id " + watch.id + ")");
+        return watch.status();
+    }
+
+    public List<WatchStatus> list() {
+        List<WatchStatus> statuses = new ArrayList<>();
+        for (Watch watch : watches.values()) {
+            statuses.add(watch.status());
+        }
+        return statuses;
+    }
+
+    public WatchStatus get(String id) {
+        Watch watch = watches.get(id);
+        return watch != null ? watch.status() : null;
+    }
+
+    /** Stops future runs; a run in progress finishes. */
+    public boolean cancel(String id) {
+        Watch watch = watches.remove(id);
+        if (watch == null) {
+            return false;
+        }
+        watch.future.cancel(false);
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void run(Watch watch) {
+        long started = System.currentTimeMillis();
+        try {
+            EnhancedDownloadManager.DownloadResult result = downloads.runDownload(watch.url, watch.downloadDir, watch.options);
+            watch.finished(started, result.getDelta(), null);
+        } catch (Exception e) {
+            // Keep the schedule alive; the next run tries again
+            watch.finished(started, null, e.getMessage());
+            System.err.println("⚠️ Watch " + watch.id + " run failed: " + e.getMessage());
+        }
+    }
+
+    private static class Watch {
+        private final String id;
+        private final String url;
+        private final String downloadDir;
+        private final DownloadOptions options;
+        private final int intervalMinutes;
+        private volatile ScheduledFuture<?> future;
+        private int runs;
+        private Long lastRunAt;
+        private Long lastRunMillis;
+        private WatchDelta lastDelta;
+        private String lastError;
+
+        Watch(String id, String url, String downloadDir, DownloadOptions options, int intervalMinutes) {
+            this.id = id;
+            this.url = url;
+            this.downloadDir = downloadDir;
+            this.options = options;
+            this.intervalMinutes = intervalMinutes;
+        }
+
+        synchronized void finished(long started, WatchDelta delta, String error) {
+            runs++;
+            lastRunAt = System.currentTimeMillis();
+            lastRunMillis = lastRunAt - started;
+            lastDelta = delta;
+            lastError = error;
+        }
+
+        synchronized WatchStatus status() {
+            return new WatchStatus(id, url, downloadDir, intervalMinutes, runs, lastRunAt, lastRunMillis,
+                    lastDelta, lastError);
+        }
+    }
+}
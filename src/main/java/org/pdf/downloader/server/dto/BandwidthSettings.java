@@ -0,0 +1,28 @@
+package org.pdf.downloader.server.dto;
+
+import java.util.Map;
+
+/** Shared bandwidth limits in bytes per second; 0 = unlimited. */
+public class BandwidthSettings {
+    private Long globalBytesPerSecond;
+    private Long perHostBytesPerSecond;
+    /** Explicit limits for individual hosts, overriding the per-host default. */
+    private Map<String, Long> hosts;
+
+    public BandwidthSettings() {}
+
+    public BandwidthSettings(Long globalBytesPerSecond, Long perHostBytesPerSecond, Map<String, Long> hosts) {
+        this.globalBytesPerSecond = globalBytesPerSecond;
+        this.perHostBytesPerSecond = perHostBytesPerSecond;
+        this.hosts = hosts;
+    }
+
+    public Long getGlobalBytesPerSecond() { return globalBytesPerSecond; }
+    public void setGlobalBytesPerSecond(Long globalBytesPerSecond) { this.globalBytesPerSecond = globalBytesPerSecond; }
+
+    public Long getPerHostBytesPerSecond() { return perHostBytesPerSecond; }
+    public void setPerHostBytesPerSecond(Long perHostBytesPerSecond) { this.perHostBytesPerSecond = perHostBytesPerSecond; }
+
+    public Map<String, Long> getHosts() { return hosts; }
+    public void setHosts(Map<String, Long> hosts) { this.hosts = hosts; }
+}
@@ -7,6 +7,24 @@ public class DownloadRequest {
     private Integer timeoutMinutes; // optional
     /** When true, follow other same-site pages linked from the URL and download their PDFs too. Default false. */
     private Boolean followNestedPages;
+    /** Transfer engine: "blocking" (default) or "async" (non-blocking, few threads for many transfers). */
+    private String mode;
+    /** Bandwidth cap for this job in bytes per second; optional, unlimited by default. */
+    private Long maxBytesPerSecond;
+    /** Nested crawl limits (only with followNestedPages): link depth (default 1), max pages, parallel page fetches. */
+    private Integer maxDepth;
+    private Integer maxPages;
+    private Integer crawlConcurrency;
+    /** Probe links without a .pdf extension (download.aspx?id=..., redirectors) with HEAD requests. Default false. */
+    private Boolean probeLinks;
+    /** Discovery: "crawl" (default) or "sitemap" (robots.txt + sitemaps, crawl fallback) with optional URL regex / ISO lastmod filters. */
+    private String discovery;
+    private String sitemapPattern;
+    private String modifiedSince;
+    /** Incremental run: only PDFs that are new or changed since the last run into this directory. Default false. */
+    private Boolean watch;
+    /** Transfer order: "fifo" (default), "longest" (shortest job overall) or "shortest" (files arrive soonest). */
+    private String order;
 
     public String getUrl() { return url; }
     public void setUrl(String url) { this.url = url; }
@@ -22,5 +40,37 @@ public class DownloadRequest {
 
     public Boolean getFollowNestedPages() { return followNestedPages; }
     public void setFollowNestedPages(Boolean followNestedPages) { this.followNestedPages = followNestedPages; }
-}
 
+    public String getMode() { return mode; }
+    public void setMode(String mode) { this.mode = mode; }
+
+    public Long getMaxBytesPerSecond() { return maxBytesPerSecond; }
+    public void setMaxBytesPerSecond(Long maxBytesPerSecond) { this.maxBytesPerSecond = maxBytesPerSecond; }
+
+    public Integer getMaxDepth() { return maxDepth; }
+    public void setMaxDepth(Integer maxDepth) { this.maxDepth = maxDepth; }
+
+    public Integer getMaxPages() { return maxPages; }
+    public void setMaxPages(Integer maxPages) { this.maxPages = maxPages; }
+
+    public Integer getCrawlConcurrency() { return crawlConcurrency; }
+    public void setCrawlConcurrency(Integer crawlConcurrency) { this.crawlConcurrency = crawlConcurrency; }
+
+    public Boolean getProbeLinks() { return probeLinks; }
+    public void setProbeLinks(Boolean probeLinks) { this.probeLinks = probeLinks; }
+
+    public String getDiscovery() { return discovery; }
+    public void setDiscovery(String discovery) { this.discovery = discovery; }
+
+    public String getSitemapPattern() { return sitemapPattern; }
+    public void setSitemapPattern(String sitemapPattern) { this.sitemapPattern = sitemapPattern; }
+
+    public String getModifiedSince() { return modifiedSince; }
+    public void setModifiedSince(String modifiedSince) { this.modifiedSince = modifiedSince; }
+
+    public Boolean getWatch() { return watch; }
+    public void setWatch(Boolean watch) { this.watch = watch; }
+
+    public String getOrder() { return order; }
+    public void setOrder(String order) { this.order = order; }
+}
@@ -0,0 +1,22 @@
+package org.pdf.downloader.server.dto;
+
+/** Outcome of one PDF within a job: DOWNLOADING, DOWNLOADED, SKIPPED or FAILED. */
+public class FileResult {
+    private final String url;
+    private final String fileName;
+    private final String status;
+    private final String message;
+
+    public FileResult(String url, String fileName, String status, String message) {
+        this.url = url;
+        this.fileName = fileName;
+        this.status = status;
+        this.message = message;
+    }
+
+    public String getUrl() { return url; }
+    public String getFileName() { return fileName; }
+    public String getStatus() { return status; }
+    /** Skip reason or error; null for downloads. */
+    public String getMessage() { return message; }
+}
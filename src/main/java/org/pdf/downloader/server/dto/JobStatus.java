@@ -0,0 +1,59 @@
+package org.pdf.downloader.server.dto;
+
+import org.pdf.downloader.model.WatchDelta;
+
+import java.util.List;
+
+public class JobStatus {
+    private final String id;
+    private final String state;
+    private final String url;
+    private final String downloadDir;
+    private final long submittedAt;
+    private final Long startedAt;
+    private final Long finishedAt;
+    private final int found;
+    private final int downloaded;
+    private final int skipped;
+    private final int failed;
+    private final String error;
+    private final WatchDelta delta;
+    private final List<FileResult> files;
+
+    public JobStatus(String id, String state, String url, String downloadDir, long submittedAt, Long startedAt,
+                     Long finishedAt, int found, int downloaded, int skipped, int failed, String error,
+                     WatchDelta delta, List<FileResult> files) {
+        this.id = id;
+        this.state = state;
+        this.url = url;
+        this.downloadDir = downloadDir;
+        this.submittedAt = submittedAt;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.found = found;
+        this.downloaded = downloaded;
+        this.skipped = skipped;
+        this.failed = failed;
+        this.error = error;
+        this.delta = delta;
+        this.files = files;
+    }
+
+    public String getId() { return id; }
+    /** QUEUED, RUNNING, COMPLETED, FAILED or CANCELLED. */
+    public String getState() { return state; }
+    public String getUrl() { return url; }
+    public String getDownloadDir() { return downloadDir; }
+    public long getSubmittedAt() { return submittedAt; }
+    public Long getStartedAt() { return startedAt; }
+    public Long getFinishedAt() { return finishedAt; }
+    /** PDFs discovered so far. */
+    public int getFound() { return found; }
+    public int getDownloaded() { return downloaded; }
+    public int getSkipped() { return skipped; }
+    public int getFailed() { return failed; }
+    public String getError() { return error; }
+    public WatchDelta getDelta() { return delta; }
+    /** Omitted from the submit response and job listings. */
+    public List<FileResult> getFiles() { return files; }
+}
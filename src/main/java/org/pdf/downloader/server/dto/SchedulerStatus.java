@@ -0,0 +1,25 @@
+package org.pdf.downloader.server.dto;
+
+public class SchedulerStatus {
+    private final int maxInFlight;
+    private final int inFlight;
+    private final int queued;
+    private final int maxJobs;
+    private final int jobsRunning;
+
+    public SchedulerStatus(int maxInFlight, int inFlight, int queued, int maxJobs, int jobsRunning) {
+        this.maxInFlight = maxInFlight;
+        this.inFlight = inFlight;
+        this.queued = queued;
+        this.maxJobs = maxJobs;
+        this.jobsRunning = jobsRunning;
+    }
+
+    /** Global cap on transfers in flight across all jobs. */
+    public int getMaxInFlight() { return maxInFlight; }
+    public int getInFlight() { return inFlight; }
+    /** Transfers waiting for a free slot. */
+    public int getQueued() { return queued; }
+    public int getMaxJobs() { return maxJobs; }
+    public int getJobsRunning() { return jobsRunning; }
+}
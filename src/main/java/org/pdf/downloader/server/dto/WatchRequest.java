@@ -0,0 +1,10 @@
+package org.pdf.downloader.server.dto;
+
+/** Download settings plus how often to re-run them incrementally. */
+public class WatchRequest extends DownloadRequest {
+    /** Minutes between the end of one run and the start of the next; default 60, minimum 1. */
+    private Integer intervalMinutes;
+
+    public Integer getIntervalMinutes() { return intervalMinutes; }
+    public void setIntervalMinutes(Integer intervalMinutes) { this.intervalMinutes = intervalMinutes; }
+}
@@ -0,0 +1,39 @@
+package org.pdf.downloader.server.dto;
+
+import org.pdf.downloader.model.WatchDelta;
+
+public class WatchStatus {
+    private final String id;
+    private final String url;
+    private final String downloadDir;
+    private final int intervalMinutes;
+    private final int runs;
+    private final Long lastRunAt;
+    private final Long lastRunMillis;
+    private final WatchDelta lastDelta;
+    private final String lastError;
+
+    public WatchStatus(String id, String url, String downloadDir, int intervalMinutes, int runs,
+                       Long lastRunAt, Long lastRunMillis, WatchDelta lastDelta, String lastError) {
+        this.id = id;
+        this.url = url;
+        this.downloadDir = downloadDir;
+        this.intervalMinutes = intervalMinutes;
+        this.runs = runs;
+        this.lastRunAt = lastRunAt;
+        this.lastRunMillis = lastRunMillis;
+        this.lastDelta = lastDelta;
+        this.lastError = lastError;
+    }
+
+    public String getId() { return id; }
+    public String getUrl() { return url; }
+    public String getDownloadDir() { return downloadDir; }
+    public int getIntervalMinutes() { return intervalMinutes; }
+    public int getRuns() { return runs; }
+    /** Epoch millis when the last run finished; null before the first run. */
+    public Long getLastRunAt() { return lastRunAt; }
+    public Long getLastRunMillis() { return lastRunMillis; }
+    public WatchDelta getLastDelta() { return lastDelta; }
+    public String getLastError() { return lastError; }
+}